@@ -1,11 +1,14 @@
 package moon.cluster;
 
+import moon.core.Request;
+import moon.core.Response;
 import moon.core.extension.SPI;
 import moon.core.extension.Scope;
 import moon.rpc.Caller;
 import moon.rpc.Reference;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Ricky Fung
@@ -20,4 +23,9 @@ public interface Cluster<T> extends Caller<T> {
     List<Reference<T>> getReferences();
 
     LoadBalance<T> getLoadBalance();
+
+    /**
+     * 异步调用，返回的future总是以Response正常完成，只有业务异常以异常完成
+     */
+    CompletableFuture<Response> callAsync(Request request);
 }
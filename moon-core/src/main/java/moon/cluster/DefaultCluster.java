@@ -21,7 +21,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * @author Ricky Fung
@@ -145,6 +148,42 @@ public class DefaultCluster<T> implements Cluster<T>, NotifyListener {
         return buildErrorResponse(request, new RpcServiceException("service not available"));
     }
 
+    @Override
+    public CompletableFuture<Response> callAsync(final Request request) {
+        if (!available) {
+            return CompletableFuture.completedFuture(buildErrorResponse(request, new RpcServiceException("service not available")));
+        }
+        CompletableFuture<Response> future;
+        try {
+            //默认：FailfastHaStrategy  RandomLoadBalance
+            future = haStrategy.callAsync(request, loadBalance);
+        } catch (Exception e) {
+            if (ExceptionUtil.isBizException(e)) {
+                throw (RuntimeException) e;
+            }
+            return CompletableFuture.completedFuture(buildErrorResponse(request, e));
+        }
+        final CompletableFuture<Response> result = new CompletableFuture<>();
+        future.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(Response response, Throwable throwable) {
+                if (throwable == null) {
+                    result.complete(response);
+                    return;
+                }
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                Exception e = cause instanceof Exception ? (Exception) cause : new RpcFrameworkException(cause);
+                if (ExceptionUtil.isBizException(e)) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(buildErrorResponse(request, e));
+                }
+            }
+        });
+        return result;
+    }
+
     private Response buildErrorResponse(Request request, Exception motanException) {
         DefaultResponse rs = new DefaultResponse();
         rs.setException(motanException);
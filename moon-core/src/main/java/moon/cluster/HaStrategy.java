@@ -5,6 +5,8 @@ import moon.core.Response;
 import moon.core.extension.SPI;
 import moon.core.extension.Scope;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * ${DESCRIPTION}
  *
@@ -14,4 +16,9 @@ import moon.core.extension.Scope;
 public interface HaStrategy<T> {
 
     Response call(Request request, LoadBalance loadBalance);
+
+    /**
+     * 异步调用，不阻塞调用线程；重试不在IO线程或时间轮线程上发起
+     */
+    CompletableFuture<Response> callAsync(Request request, LoadBalance loadBalance);
 }
@@ -6,6 +6,8 @@ import moon.core.Request;
 import moon.core.Response;
 import moon.rpc.Reference;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * ${DESCRIPTION}
  *
@@ -18,4 +20,10 @@ public class FailfastHaStrategy<T> implements HaStrategy<T> {
         Reference<T> reference = loadBalance.select(request);
         return reference.call(request);
     }
+
+    @Override
+    public CompletableFuture<Response> callAsync(Request request, LoadBalance loadBalance) {
+        Reference<T> reference = loadBalance.select(request);
+        return reference.callAsync(request).toCompletableFuture();
+    }
 }
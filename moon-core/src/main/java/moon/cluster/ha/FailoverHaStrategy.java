@@ -1,5 +1,6 @@
 package moon.cluster.ha;
 
+import io.netty.util.concurrent.DefaultThreadFactory;
 import moon.cluster.HaStrategy;
 import moon.cluster.LoadBalance;
 import moon.common.URL;
@@ -8,10 +9,17 @@ import moon.core.Request;
 import moon.core.Response;
 import moon.exception.RpcFrameworkException;
 import moon.rpc.Reference;
+import moon.util.Constants;
 import moon.util.ExceptionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
 /**
  * ${DESCRIPTION}
  *
@@ -20,6 +28,10 @@ import org.slf4j.LoggerFactory;
 public class FailoverHaStrategy<T> implements HaStrategy<T> {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
+    //异步调用的重试线程，上一次调用在IO线程或时间轮线程上完成，不能在那里发起可能阻塞的下一次调用
+    private static final Executor RETRY_EXECUTOR = Executors.newCachedThreadPool(
+            new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "failover"), true));
+
     @Override
     public Response call(Request request, LoadBalance loadBalance) {
         Reference<T> reference = loadBalance.select(request);
@@ -31,7 +43,12 @@ public class FailoverHaStrategy<T> implements HaStrategy<T> {
         for (int i = 0; i <= tryCount; i++) {
             reference = loadBalance.select(request);
             try {
-                return reference.call(request);
+                Response response = reference.call(request);
+                if (isRetryable(response) && i < tryCount) {
+                    logger.warn(String.format("FailoverHaStrategy Call false for request:%s error=%s", request, response.getException().getMessage()));
+                    continue;
+                }
+                return response;
             } catch (RuntimeException e) {
                 // 对于业务异常，直接抛出
                 if (ExceptionUtil.isBizException(e)) {
@@ -44,4 +61,73 @@ public class FailoverHaStrategy<T> implements HaStrategy<T> {
         }
         throw new RpcFrameworkException("FailoverHaStrategy.call should not come here!");
     }
+
+    @Override
+    public CompletableFuture<Response> callAsync(Request request, LoadBalance loadBalance) {
+        Reference<T> reference = loadBalance.select(request);
+        int tryCount = reference.getUrl().getIntParameter(URLParam.retries.getName(), URLParam.retries.getIntValue());
+        CompletableFuture<Response> result = new CompletableFuture<>();
+        callAsync(request, loadBalance, 0, Math.max(tryCount, 0), result);
+        return result;
+    }
+
+    /**
+     * 上一次调用失败后在重试线程中发起下一次调用，重试规则与同步调用相同
+     */
+    private void callAsync(final Request request, final LoadBalance loadBalance, final int i, final int tryCount,
+                           final CompletableFuture<Response> result) {
+        CompletableFuture<Response> future;
+        try {
+            Reference<T> reference = loadBalance.select(request);
+            future = reference.callAsync(request).toCompletableFuture();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(Response response, Throwable throwable) {
+                if (throwable == null) {
+                    if (isRetryable(response) && i < tryCount) {
+                        logger.warn(String.format("FailoverHaStrategy Call false for request:%s error=%s", request, response.getException().getMessage()));
+                        retryAsync(request, loadBalance, i + 1, tryCount, result);
+                        return;
+                    }
+                    result.complete(response);
+                    return;
+                }
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable;
+                // 对于业务异常，直接抛出
+                if ((cause instanceof Exception && ExceptionUtil.isBizException((Exception) cause)) || i >= tryCount) {
+                    result.completeExceptionally(cause);
+                    return;
+                }
+                logger.warn(String.format("FailoverHaStrategy Call false for request:%s error=%s", request, cause.getMessage()));
+                retryAsync(request, loadBalance, i + 1, tryCount, result);
+            }
+        });
+    }
+
+    private void retryAsync(final Request request, final LoadBalance loadBalance, final int i, final int tryCount,
+                            final CompletableFuture<Response> result) {
+        try {
+            RETRY_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callAsync(request, loadBalance, i, tryCount, result);
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * provider以正常响应返回的框架异常(过载、正在下线、服务或方法不存在等)，请求没有执行，
+     * 和调用时抛出的框架异常一样换一个provider重试；业务异常不重试
+     */
+    private static boolean isRetryable(Response response) {
+        return response != null && response.getException() instanceof RpcFrameworkException;
+    }
 }
@@ -21,7 +21,16 @@ public class RandomLoadBalance<T> implements LoadBalance<T> {
 
     @Override
     public Reference select(Request request) {
-        int idx = (int) (ThreadLocalRandom.current().nextDouble() * references.size());
+        List<Reference<T>> references = this.references;
+        int size = references.size();
+        int idx = (int) (ThreadLocalRandom.current().nextDouble() * size);
+        //跳过连接已全部断开的provider，都不可用时仍返回随机选中的
+        for (int i = 0; i < size; i++) {
+            Reference<T> reference = references.get((idx + i) % size);
+            if (reference.isAvailable()) {
+                return reference;
+            }
+        }
         return references.get(idx);
     }
 }
@@ -1,5 +1,9 @@
 package moon.codec;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+
 import java.io.IOException;
 
 /**
@@ -16,10 +20,24 @@ public abstract class AbstractCodec implements Codec {
         return serializer.serialize(message);
     }
 
+    protected void serialize(Object message, ByteBuf out, Serializer serializer) throws IOException {
+        if (message == null) {
+            return;
+        }
+        serializer.serialize(message, new ByteBufOutputStream(out));
+    }
+
     protected Object deserialize(byte[] data, Class<?> type, Serializer serializer) throws IOException {
         if (data == null) {
             return null;
         }
         return serializer.deserialize(data, type);
     }
+
+    protected Object deserialize(ByteBuf in, Class<?> type, Serializer serializer) throws IOException {
+        if (in == null) {
+            return null;
+        }
+        return serializer.deserialize(new ByteBufInputStream(in), type);
+    }
 }
@@ -1,5 +1,6 @@
 package moon.codec;
 
+import io.netty.buffer.ByteBuf;
 import moon.common.URL;
 import moon.core.extension.SPI;
 import moon.util.Constants;
@@ -16,5 +17,24 @@ public interface Codec {
 
     byte[] encode(URL url, Object message) throws IOException;
 
+    /**
+     * 将消息体直接写入out，不经过中间byte[]
+     * @param url
+     * @param message
+     * @param out
+     * @throws IOException
+     */
+    void encode(URL url, Object message, ByteBuf out) throws IOException;
+
     Object decode(URL url, byte messageType, byte[] data) throws IOException;
+
+    /**
+     * 直接从in(不含header的消息体)解码，不经过中间byte[]
+     * @param url
+     * @param messageType
+     * @param in
+     * @return
+     * @throws IOException
+     */
+    Object decode(URL url, byte messageType, ByteBuf in) throws IOException;
 }
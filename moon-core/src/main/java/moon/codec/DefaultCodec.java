@@ -1,5 +1,6 @@
 package moon.codec;
 
+import io.netty.buffer.ByteBuf;
 import moon.common.URL;
 import moon.common.URLParam;
 import moon.core.DefaultRequest;
@@ -26,6 +27,12 @@ public class DefaultCodec extends AbstractCodec {
         return serialize(message, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
     }
 
+    @Override
+    public void encode(URL url, Object message, ByteBuf out) throws IOException {
+        String serialization = url.getParameter(URLParam.serialization.getName(), URLParam.serialization.getValue());
+        serialize(message, out, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
+    }
+
     @Override
     public Object decode(URL url, byte messageType, byte[] data) throws IOException {
         String serialization = url.getParameter(URLParam.serialization.getName(), URLParam.serialization.getValue());
@@ -35,4 +42,13 @@ public class DefaultCodec extends AbstractCodec {
         }
         return deserialize(data, DefaultResponse.class, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
     }
+
+    @Override
+    public Object decode(URL url, byte messageType, ByteBuf in) throws IOException {
+        String serialization = url.getParameter(URLParam.serialization.getName(), URLParam.serialization.getValue());
+        if(messageType == Constants.FLAG_REQUEST) {
+            return deserialize(in, DefaultRequest.class, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
+        }
+        return deserialize(in, DefaultResponse.class, ExtensionLoader.getExtensionLoader(Serializer.class).getExtension(serialization));
+    }
 }
@@ -4,6 +4,8 @@ import moon.core.extension.SPI;
 import moon.core.extension.Scope;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * ${DESCRIPTION}
@@ -15,5 +17,23 @@ public interface Serializer {
 
     byte[] serialize(Object msg) throws IOException;
 
+    /**
+     * 直接序列化到输出流(如netty的ByteBuf)，避免中间byte[]拷贝
+     * @param msg
+     * @param out
+     * @throws IOException
+     */
+    void serialize(Object msg, OutputStream out) throws IOException;
+
     <T> T deserialize(byte[] data, Class<T> type) throws IOException;
+
+    /**
+     * 直接从输入流(如netty的ByteBuf)反序列化，避免中间byte[]拷贝
+     * @param in
+     * @param type
+     * @param <T>
+     * @return
+     * @throws IOException
+     */
+    <T> T deserialize(InputStream in, Class<T> type) throws IOException;
 }
@@ -107,6 +107,14 @@ public class URL {
         return Integer.parseInt(value);
     }
 
+    public Boolean getBooleanParameter(String name, boolean defaultValue) {
+        String value = parameters.get(name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
     public void addParameter(String name, String value) {
         if (StringUtils.isEmpty(name) || StringUtils.isEmpty(value)) {
             return;
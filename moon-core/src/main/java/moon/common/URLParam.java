@@ -28,17 +28,80 @@ public enum URLParam {
     minWorkerThread("minWorkerThread", 20),
     /** service max worker threads **/
     maxWorkerThread("maxWorkerThread", 200),
+    /** 共享业务线程池的排队数，排满后拒绝并返回过载响应，0表示没有空闲线程时直接拒绝 **/
+    workerQueues("workerQueues", 1000),
+    /** 请求在线程池中的最长排队时间(ms)，超过后不再执行而返回过载响应；同时不超过请求的timeout，0表示只按timeout **/
+    maxQueueTime("maxQueueTime", 0),
+    /** consumer取消请求时是否中断正在执行的业务线程，默认只在RpcContext上标记 **/
+    cancelInterrupt("cancelInterrupt", false),
+    /** provider下线时从注册中心注销后继续提供服务的时间(ms)，等待consumer感知到下线 **/
+    shutdownGracePeriod("shutdownGracePeriod", 0),
+    /** provider关闭时拒绝新请求，最多等待在途请求处理完的时间(ms) **/
+    shutdownTimeout("shutdownTimeout", 10000),
 
     /**netty**/
     maxContentLength("maxContentLength", 1<<24),
 
     bufferSize("buffer_size", 1024*16),
+    /** 每个provider的连接数 **/
+    connections("connections", 1),
+    /** 连接选择策略: roundrobin/leastpending **/
+    connectionSelector("connectionSelector", "roundrobin"),
+    /** 异步回调线程数，0表示在io线程中直接回调 **/
+    callbackThreads("callbackThreads", 0),
+    /** netty io线程数，0表示netty默认(cpu核数 * 2) **/
+    ioThreads("ioThreads", 0),
+    /** netty transport: nio/epoll **/
+    transport("transport", "nio"),
+    /** epoll触发模式: edge/level **/
+    epollMode("epollMode", "edge"),
+    /** 服务端是否开启SO_REUSEPORT，仅epoll有效 **/
+    reusePort("reusePort", false),
+    /** JDK 21+使用虚拟线程: 服务端共享业务线程池、客户端异步回调，不支持时忽略 **/
+    virtualThreads("virtualThreads", false),
+    /** 写合并: 一个连接上累积多少个消息后flush，0或1表示每个消息直接flush **/
+    writeBatchSize("writeBatchSize", 0),
+    /** 写合并: 未flush的字节数达到该值时立即flush **/
+    writeBatchBytes("writeBatchBytes", 64*1024),
+    /** 写合并: 等待更多消息的最长时间(微秒)，0表示io线程本轮任务执行完就flush **/
+    writeBatchDelay("writeBatchDelay", 0),
+    /** 写缓冲低水位(字节)，待写出数据降到该值以下时连接重新可写 **/
+    writeBufferLowWaterMark("writeBufferLowWaterMark", 32*1024),
+    /** 写缓冲高水位(字节)，待写出数据超过该值时连接不可写，consumer不再发送新请求 **/
+    writeBufferHighWaterMark("writeBufferHighWaterMark", 64*1024),
+    /** 心跳间隔(ms)，由provider配置并在服务url中声明: provider 3个周期没有读到数据关闭连接；consumer按provider声明的间隔在写空闲时发送心跳，3个周期没有读到数据关闭连接。0表示不启用 **/
+    heartbeat("heartbeat", 0),
+    /** consumer连接失败或断开后首次重连的间隔(ms)，连续失败时指数增长 **/
+    reconnectInterval("reconnectInterval", 100),
+    /** consumer重连间隔的上限(ms) **/
+    maxReconnectInterval("maxReconnectInterval", 10000),
+    /** consumer每个连接上最多的待响应请求数，0表示不限制 **/
+    maxPendingRequests("maxPendingRequests", 0),
+    /** 连接不可写或待响应请求数达到上限时最多等待的时间(ms)，0表示直接拒绝；与maxPendingRequests都为0时不做背压 **/
+    backpressureTimeout("backpressureTimeout", 0),
+
+    /** 服务端请求分发方式: direct(io线程)/shared(共享线程池)/dedicated(服务独立线程池)/ordered(按连接顺序执行)/virtual(虚拟线程)，可按方法配置: methodName.dispatch **/
+    dispatch("dispatch", "shared"),
+    /** dedicated分发方式下服务独立线程池的最大线程数，配置在方法上(methodName.dispatchThreads)时方法使用独立的线程池 **/
+    dispatchThreads("dispatchThreads", 20),
+    /** 独立线程池的核心线程数，默认等于dispatchThreads **/
+    dispatchCoreThreads("dispatchCoreThreads", 20),
+    /** 独立线程池的排队数，0表示没有空闲线程时直接拒绝 **/
+    dispatchQueues("dispatchQueues", 0),
 
     loadBalance("loadbalance", "random"),
     haStrategy("haStrategy", "failfast"),
 
     check("check", true),
+    /** 单向调用，按方法配置: methodName.oneway **/
+    oneway("oneway", false),
     retries("retries", 0),
+    /** provider服务id，由group/interface/version推导，请求据此路由 **/
+    serviceId("serviceId", 0),
+    /** provider接口方法表摘要，与consumer一致时请求只携带方法id **/
+    methodDigest("methodDigest", ""),
+    /** provider能处理consumer的取消帧，老版本provider没有该参数，不向其发送取消 **/
+    cancelSupported("cancelSupported", false),
 
     proxyType("proxy", "jdk"),
 
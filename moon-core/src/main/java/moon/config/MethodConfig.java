@@ -0,0 +1,60 @@
+package moon.config;
+
+/**
+ * <moon:method name="emit" oneway="true" />
+ * <moon:method name="get" dispatch="direct" />
+ * <moon:method name="report" dispatch-threads="4" dispatch-queues="16" />
+ *
+ * @author Ricky Fung
+ */
+public class MethodConfig extends AbstractConfig {
+
+    private static final long serialVersionUID = 4108723568201369525L;
+    private String name;
+    private Boolean oneway;
+    //服务端分发方式: direct/shared/dedicated/ordered
+    private String dispatch;
+    //方法独立线程池的线程数和排队数
+    private Integer dispatchThreads;
+    private Integer dispatchQueues;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Boolean getOneway() {
+        return oneway;
+    }
+
+    public void setOneway(Boolean oneway) {
+        this.oneway = oneway;
+    }
+
+    public String getDispatch() {
+        return dispatch;
+    }
+
+    public void setDispatch(String dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    public Integer getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    public void setDispatchThreads(Integer dispatchThreads) {
+        this.dispatchThreads = dispatchThreads;
+    }
+
+    public Integer getDispatchQueues() {
+        return dispatchQueues;
+    }
+
+    public void setDispatchQueues(Integer dispatchQueues) {
+        this.dispatchQueues = dispatchQueues;
+    }
+}
@@ -17,11 +17,32 @@ public class ProtocolConfig extends AbstractConfig {
     private String poolType;
     private Integer minPoolSize;
     private Integer maxPoolSize;
+    private Integer queues;     //共享业务线程池的排队数
+    private Integer shutdownGracePeriod;    //下线时注销后继续服务的时间(ms)
+    private Integer shutdownTimeout;        //关闭时等待在途请求处理完的最长时间(ms)
 
     private String charset;
     private Integer bufferSize; //网络读写缓冲区大小
     private Integer payload;    //请求及响应数据包大小限制，单位：字节
-    private Integer heartbeat;  //心跳间隔
+    private Integer heartbeat;  //心跳间隔(ms)，provider配置，consumer使用provider声明的值
+    private Integer connectTimeout;         //consumer建立连接的超时时间(ms)
+    private Integer reconnectInterval;      //consumer首次重连的间隔(ms)
+    private Integer maxReconnectInterval;   //consumer重连间隔的上限(ms)
+
+    private Integer ioThreads;  //netty io线程数
+    private Integer connections;        //consumer到每个provider的连接数
+    private String connectionSelector;  //连接选择策略: roundrobin/leastpending
+    private String transport;   //netty传输实现: nio/epoll
+    private String epollMode;   //epoll触发模式: edge/level
+    private Boolean reusePort;  //SO_REUSEPORT，仅epoll有效
+    private Boolean virtualThreads; //JDK 21+使用虚拟线程
+    private Integer writeBatchSize;     //写合并: 累积多少个消息后flush
+    private Integer writeBatchBytes;    //写合并: 累积多少字节后flush
+    private Integer writeBatchDelay;    //写合并: 最长延迟flush的时间(微秒)
+    private Integer writeBufferLowWaterMark;    //写缓冲低水位
+    private Integer writeBufferHighWaterMark;   //写缓冲高水位
+    private Integer maxPendingRequests;     //consumer每个连接最多的待响应请求数
+    private Integer backpressureTimeout;    //连接不可写或待响应数满时最多等待的时间(ms)
 
     private Boolean isDefault = Boolean.TRUE;
 
@@ -121,6 +142,166 @@ public class ProtocolConfig extends AbstractConfig {
         this.heartbeat = heartbeat;
     }
 
+    public Integer getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Integer connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Integer getReconnectInterval() {
+        return reconnectInterval;
+    }
+
+    public void setReconnectInterval(Integer reconnectInterval) {
+        this.reconnectInterval = reconnectInterval;
+    }
+
+    public Integer getMaxReconnectInterval() {
+        return maxReconnectInterval;
+    }
+
+    public void setMaxReconnectInterval(Integer maxReconnectInterval) {
+        this.maxReconnectInterval = maxReconnectInterval;
+    }
+
+    public Integer getConnections() {
+        return connections;
+    }
+
+    public void setConnections(Integer connections) {
+        this.connections = connections;
+    }
+
+    public String getConnectionSelector() {
+        return connectionSelector;
+    }
+
+    public void setConnectionSelector(String connectionSelector) {
+        this.connectionSelector = connectionSelector;
+    }
+
+    public Integer getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(Integer ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public String getEpollMode() {
+        return epollMode;
+    }
+
+    public void setEpollMode(String epollMode) {
+        this.epollMode = epollMode;
+    }
+
+    public Boolean getReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort(Boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
+    public Integer getQueues() {
+        return queues;
+    }
+
+    public void setQueues(Integer queues) {
+        this.queues = queues;
+    }
+
+    public Integer getShutdownGracePeriod() {
+        return shutdownGracePeriod;
+    }
+
+    public void setShutdownGracePeriod(Integer shutdownGracePeriod) {
+        this.shutdownGracePeriod = shutdownGracePeriod;
+    }
+
+    public Integer getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(Integer shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public Boolean getVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(Boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public Integer getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    public void setWriteBatchSize(Integer writeBatchSize) {
+        this.writeBatchSize = writeBatchSize;
+    }
+
+    public Integer getWriteBatchBytes() {
+        return writeBatchBytes;
+    }
+
+    public void setWriteBatchBytes(Integer writeBatchBytes) {
+        this.writeBatchBytes = writeBatchBytes;
+    }
+
+    public Integer getWriteBatchDelay() {
+        return writeBatchDelay;
+    }
+
+    public void setWriteBatchDelay(Integer writeBatchDelay) {
+        this.writeBatchDelay = writeBatchDelay;
+    }
+
+    public Integer getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public void setWriteBufferLowWaterMark(Integer writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
+    public Integer getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public void setWriteBufferHighWaterMark(Integer writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+
+    public Integer getMaxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    public void setMaxPendingRequests(Integer maxPendingRequests) {
+        this.maxPendingRequests = maxPendingRequests;
+    }
+
+    public Integer getBackpressureTimeout() {
+        return backpressureTimeout;
+    }
+
+    public void setBackpressureTimeout(Integer backpressureTimeout) {
+        this.backpressureTimeout = backpressureTimeout;
+    }
+
     public Boolean isDefault() {
         return isDefault;
     }
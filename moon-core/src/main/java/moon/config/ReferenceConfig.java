@@ -26,6 +26,9 @@ public class ReferenceConfig<T> extends AbstractInterfaceConfig {
 
     private transient volatile boolean initialized;
     private List<Cluster<T>> clusters;
+    private List<MethodConfig> methods;
+    //代理实现: jdk/stub
+    private String proxyType;
 
     //获取代理，@Resource和@Autowired不会有性能问题；
     public T get() {
@@ -76,12 +79,37 @@ public class ReferenceConfig<T> extends AbstractInterfaceConfig {
             Map<String, String> map = new HashMap<>();
             map.put(URLParam.application.getName(), StringUtils.isNotEmpty(application.getName()) ? application.getName() : URLParam.application.getValue());
             map.put(URLParam.serialization.getName(), StringUtils.isNotEmpty(protocol.getSerialization()) ? protocol.getSerialization() : URLParam.serialization.getValue());
+            map.put(URLParam.connections.getName(), protocol.getConnections() != null ? protocol.getConnections().toString() : URLParam.connections.getValue());
+            map.put(URLParam.connectionSelector.getName(), StringUtils.isNotEmpty(protocol.getConnectionSelector()) ? protocol.getConnectionSelector() : URLParam.connectionSelector.getValue());
+            map.put(URLParam.ioThreads.getName(), protocol.getIoThreads() != null ? protocol.getIoThreads().toString() : URLParam.ioThreads.getValue());
+            map.put(URLParam.transport.getName(), StringUtils.isNotEmpty(protocol.getTransport()) ? protocol.getTransport() : URLParam.transport.getValue());
+            map.put(URLParam.epollMode.getName(), StringUtils.isNotEmpty(protocol.getEpollMode()) ? protocol.getEpollMode() : URLParam.epollMode.getValue());
+            map.put(URLParam.reusePort.getName(), protocol.getReusePort() != null ? protocol.getReusePort().toString() : URLParam.reusePort.getValue());
+            map.put(URLParam.virtualThreads.getName(), protocol.getVirtualThreads() != null ? protocol.getVirtualThreads().toString() : URLParam.virtualThreads.getValue());
+            map.put(URLParam.writeBatchSize.getName(), protocol.getWriteBatchSize() != null ? protocol.getWriteBatchSize().toString() : URLParam.writeBatchSize.getValue());
+            map.put(URLParam.writeBatchBytes.getName(), protocol.getWriteBatchBytes() != null ? protocol.getWriteBatchBytes().toString() : URLParam.writeBatchBytes.getValue());
+            map.put(URLParam.writeBatchDelay.getName(), protocol.getWriteBatchDelay() != null ? protocol.getWriteBatchDelay().toString() : URLParam.writeBatchDelay.getValue());
+            map.put(URLParam.writeBufferLowWaterMark.getName(), protocol.getWriteBufferLowWaterMark() != null ? protocol.getWriteBufferLowWaterMark().toString() : URLParam.writeBufferLowWaterMark.getValue());
+            map.put(URLParam.writeBufferHighWaterMark.getName(), protocol.getWriteBufferHighWaterMark() != null ? protocol.getWriteBufferHighWaterMark().toString() : URLParam.writeBufferHighWaterMark.getValue());
+            map.put(URLParam.connectTimeout.getName(), protocol.getConnectTimeout() != null ? protocol.getConnectTimeout().toString() : URLParam.connectTimeout.getValue());
+            map.put(URLParam.reconnectInterval.getName(), protocol.getReconnectInterval() != null ? protocol.getReconnectInterval().toString() : URLParam.reconnectInterval.getValue());
+            map.put(URLParam.maxReconnectInterval.getName(), protocol.getMaxReconnectInterval() != null ? protocol.getMaxReconnectInterval().toString() : URLParam.maxReconnectInterval.getValue());
+            map.put(URLParam.maxPendingRequests.getName(), protocol.getMaxPendingRequests() != null ? protocol.getMaxPendingRequests().toString() : URLParam.maxPendingRequests.getValue());
+            map.put(URLParam.backpressureTimeout.getName(), protocol.getBackpressureTimeout() != null ? protocol.getBackpressureTimeout().toString() : URLParam.backpressureTimeout.getValue());
             map.put(URLParam.version.getName(), StringUtils.isNotEmpty(version) ? version : URLParam.version.getValue());
             map.put(URLParam.group.getName(), StringUtils.isNotEmpty(group) ? group : URLParam.group.getValue());
             map.put(URLParam.side.getName(), Constants.CONSUMER);
             map.put(URLParam.requestTimeout.getName(), String.valueOf(getTimeout()));
             map.put(URLParam.timestamp.getName(), String.valueOf(System.currentTimeMillis()));
             map.put(URLParam.check.getName(), isCheck().toString());
+            map.put(URLParam.proxyType.getName(), StringUtils.isNotEmpty(proxyType) ? proxyType : URLParam.proxyType.getValue());
+            if (methods != null) {
+                for (MethodConfig method : methods) {
+                    if (method.getOneway() != null && method.getOneway()) {
+                        map.put(method.getName() + "." + URLParam.oneway.getName(), Boolean.TRUE.toString());
+                    }
+                }
+            }
             //获取reference通讯协议的地址和端口
             String hostAddress = getLocalHostAddress(protocol);
             Integer port = getProtocolPort(protocol);
@@ -120,4 +148,20 @@ public class ReferenceConfig<T> extends AbstractInterfaceConfig {
         }
         proxy = null;
     }
+
+    public List<MethodConfig> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(List<MethodConfig> methods) {
+        this.methods = methods;
+    }
+
+    public String getProxyType() {
+        return proxyType;
+    }
+
+    public void setProxyType(String proxyType) {
+        this.proxyType = proxyType;
+    }
 }
@@ -6,7 +6,9 @@ import moon.common.URLParam;
 import moon.core.extension.ExtensionLoader;
 import moon.rpc.ConfigHandler;
 import moon.rpc.Exporter;
+import moon.rpc.MethodTable;
 import moon.util.Constants;
+import moon.util.FrameworkUtils;
 import moon.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +34,16 @@ public class ServiceConfig<T> extends AbstractInterfaceConfig {
     private ArrayListMultimap<URL, URL> registeredUrls = ArrayListMultimap.create();
     private Class<T> interfaceClass;
     private T ref;
+    //服务端分发方式
+    private String dispatch;
+    private Integer dispatchThreads;
+    private Integer dispatchCoreThreads;
+    private Integer dispatchQueues;
+    //请求最长排队时间(ms)，超过后直接返回过载响应
+    private Integer maxQueueTime;
+    //consumer取消请求时是否中断正在执行的业务线程
+    private Boolean cancelInterrupt;
+    private List<MethodConfig> methods;
 
     protected synchronized void export() {
         if (exported) {
@@ -86,6 +98,46 @@ public class ServiceConfig<T> extends AbstractInterfaceConfig {
         map.put(URLParam.version.getName(), StringUtils.isNotEmpty(version) ? version : URLParam.version.getValue());
         map.put(URLParam.group.getName(), StringUtils.isNotEmpty(group) ? group : URLParam.group.getValue());
         map.put(URLParam.serialization.getName(), StringUtils.isNotEmpty(protocol.getSerialization()) ? protocol.getSerialization(): URLParam.serialization.getValue());
+        map.put(URLParam.ioThreads.getName(), protocol.getIoThreads() != null ? protocol.getIoThreads().toString() : URLParam.ioThreads.getValue());
+        map.put(URLParam.transport.getName(), StringUtils.isNotEmpty(protocol.getTransport()) ? protocol.getTransport() : URLParam.transport.getValue());
+        map.put(URLParam.epollMode.getName(), StringUtils.isNotEmpty(protocol.getEpollMode()) ? protocol.getEpollMode() : URLParam.epollMode.getValue());
+        map.put(URLParam.reusePort.getName(), protocol.getReusePort() != null ? protocol.getReusePort().toString() : URLParam.reusePort.getValue());
+        map.put(URLParam.virtualThreads.getName(), protocol.getVirtualThreads() != null ? protocol.getVirtualThreads().toString() : URLParam.virtualThreads.getValue());
+        map.put(URLParam.writeBatchSize.getName(), protocol.getWriteBatchSize() != null ? protocol.getWriteBatchSize().toString() : URLParam.writeBatchSize.getValue());
+        map.put(URLParam.writeBatchBytes.getName(), protocol.getWriteBatchBytes() != null ? protocol.getWriteBatchBytes().toString() : URLParam.writeBatchBytes.getValue());
+        map.put(URLParam.writeBatchDelay.getName(), protocol.getWriteBatchDelay() != null ? protocol.getWriteBatchDelay().toString() : URLParam.writeBatchDelay.getValue());
+        map.put(URLParam.writeBufferLowWaterMark.getName(), protocol.getWriteBufferLowWaterMark() != null ? protocol.getWriteBufferLowWaterMark().toString() : URLParam.writeBufferLowWaterMark.getValue());
+        map.put(URLParam.writeBufferHighWaterMark.getName(), protocol.getWriteBufferHighWaterMark() != null ? protocol.getWriteBufferHighWaterMark().toString() : URLParam.writeBufferHighWaterMark.getValue());
+        map.put(URLParam.heartbeat.getName(), protocol.getHeartbeat() != null ? protocol.getHeartbeat().toString() : URLParam.heartbeat.getValue());
+        map.put(URLParam.workerQueues.getName(), protocol.getQueues() != null ? protocol.getQueues().toString() : URLParam.workerQueues.getValue());
+        map.put(URLParam.shutdownGracePeriod.getName(), protocol.getShutdownGracePeriod() != null ? protocol.getShutdownGracePeriod().toString() : URLParam.shutdownGracePeriod.getValue());
+        map.put(URLParam.shutdownTimeout.getName(), protocol.getShutdownTimeout() != null ? protocol.getShutdownTimeout().toString() : URLParam.shutdownTimeout.getValue());
+        map.put(URLParam.serviceId.getName(), String.valueOf(FrameworkUtils.newServiceId(map.get(URLParam.group.getName()),
+                interfaceClass.getName(), map.get(URLParam.version.getName()))));
+        map.put(URLParam.methodDigest.getName(), MethodTable.of(interfaceClass).getDigest());
+        map.put(URLParam.cancelSupported.getName(), "true");
+        map.put(URLParam.dispatch.getName(), StringUtils.isNotEmpty(dispatch) ? dispatch : URLParam.dispatch.getValue());
+        map.put(URLParam.dispatchThreads.getName(), dispatchThreads != null ? dispatchThreads.toString() : URLParam.dispatchThreads.getValue());
+        if (dispatchCoreThreads != null) {
+            map.put(URLParam.dispatchCoreThreads.getName(), dispatchCoreThreads.toString());
+        }
+        map.put(URLParam.dispatchQueues.getName(), dispatchQueues != null ? dispatchQueues.toString() : URLParam.dispatchQueues.getValue());
+        map.put(URLParam.maxQueueTime.getName(), maxQueueTime != null ? maxQueueTime.toString() : URLParam.maxQueueTime.getValue());
+        map.put(URLParam.cancelInterrupt.getName(), cancelInterrupt != null ? cancelInterrupt.toString() : URLParam.cancelInterrupt.getValue());
+        if (methods != null) {
+            for (MethodConfig method : methods) {
+                if (StringUtils.isNotEmpty(method.getDispatch())) {
+                    map.put(method.getName() + "." + URLParam.dispatch.getName(), method.getDispatch());
+                }
+                //方法级的独立线程池
+                if (method.getDispatchThreads() != null) {
+                    map.put(method.getName() + "." + URLParam.dispatchThreads.getName(), method.getDispatchThreads().toString());
+                }
+                if (method.getDispatchQueues() != null) {
+                    map.put(method.getName() + "." + URLParam.dispatchQueues.getName(), method.getDispatchQueues().toString());
+                }
+            }
+        }
         map.put(URLParam.requestTimeout.getName(), timeout!=null ? timeout.toString() : URLParam.requestTimeout.getValue());
         map.put(URLParam.side.getName(), Constants.PROVIDER);
         map.put(URLParam.timestamp.getName(), String.valueOf(System.currentTimeMillis()));
@@ -134,4 +186,59 @@ public class ServiceConfig<T> extends AbstractInterfaceConfig {
         registeredUrls.clear();
     }
 
+    public String getDispatch() {
+        return dispatch;
+    }
+
+    public void setDispatch(String dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    public Integer getDispatchThreads() {
+        return dispatchThreads;
+    }
+
+    public void setDispatchThreads(Integer dispatchThreads) {
+        this.dispatchThreads = dispatchThreads;
+    }
+
+    public List<MethodConfig> getMethods() {
+        return methods;
+    }
+
+    public void setMethods(List<MethodConfig> methods) {
+        this.methods = methods;
+    }
+
+    public Integer getDispatchCoreThreads() {
+        return dispatchCoreThreads;
+    }
+
+    public void setDispatchCoreThreads(Integer dispatchCoreThreads) {
+        this.dispatchCoreThreads = dispatchCoreThreads;
+    }
+
+    public Integer getDispatchQueues() {
+        return dispatchQueues;
+    }
+
+    public void setDispatchQueues(Integer dispatchQueues) {
+        this.dispatchQueues = dispatchQueues;
+    }
+
+    public Integer getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    public void setMaxQueueTime(Integer maxQueueTime) {
+        this.maxQueueTime = maxQueueTime;
+    }
+
+    public Boolean getCancelInterrupt() {
+        return cancelInterrupt;
+    }
+
+    public void setCancelInterrupt(Boolean cancelInterrupt) {
+        this.cancelInterrupt = cancelInterrupt;
+    }
 }
@@ -1,11 +1,22 @@
 package moon.core;
 
+import moon.exception.AbstractRpcException;
+import moon.exception.RpcFrameworkException;
+import moon.exception.TransportException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
+ * 基于CompletableFuture，状态转换全部由CAS完成，不加锁
+ *
  * @author Ricky Fung
  */
-public abstract class AbstractResponseFuture<T> implements ResponseFuture<T> {
-
-    protected volatile FutureState state = FutureState.NEW; //状态
+public abstract class AbstractResponseFuture<T> extends CompletableFuture<T> implements ResponseFuture<T> {
 
     protected final long createTime = System.currentTimeMillis();//处理开始时间
 
@@ -16,17 +27,58 @@ public abstract class AbstractResponseFuture<T> implements ResponseFuture<T> {
     }
 
     @Override
-    public boolean isCancelled() {
-        return this.state == FutureState.CANCELLED;
+    public T get() throws InterruptedException {
+        if (timeoutInMillis <= 0) {
+            try {
+                return super.get();
+            } catch (ExecutionException e) {
+                throw wrap(e.getCause());
+            }
+        }
+        //最多等待到超时时间点，不再无限期阻塞
+        long remaining = createTime + timeoutInMillis - System.currentTimeMillis();
+        try {
+            return get(remaining, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            this.setFailure(new TransportException("request timeout, timeout:" + timeoutInMillis + "ms"));
+            return returnResult();
+        }
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        try {
+            return super.get(Math.max(timeout, 0), unit);
+        } catch (ExecutionException e) {
+            throw wrap(e.getCause());
+        }
     }
 
     @Override
-    public boolean isDone() {
-        return this.state == FutureState.DONE;
+    public boolean isSuccess() {
+        return isDone() && !isCompletedExceptionally();
     }
 
     @Override
     public boolean isTimeout() {
-        return createTime + timeoutInMillis > System.currentTimeMillis();
+        return System.currentTimeMillis() - createTime > timeoutInMillis;
+    }
+
+    private T returnResult() {
+        try {
+            return this.join();
+        } catch (CompletionException e) {
+            throw wrap(e.getCause());
+        }
+    }
+
+    private RuntimeException wrap(Throwable err) {
+        if (err instanceof CancellationException) {
+            return (CancellationException) err;
+        }
+        if (err instanceof AbstractRpcException) {
+            return (AbstractRpcException) err;
+        }
+        return new RpcFrameworkException(err);
     }
 }
@@ -14,20 +14,24 @@ public class DefaultRequest implements Serializable, Request {
 
     private static final long serialVersionUID = 7478520607109127572L;
 
-    private Long requestId;
+    private long requestId;
     private String interfaceName;
     private String methodName;
     private Object[] arguments;
     private Class<?>[] parameterTypes;
     private byte type;  //请求类型
     private Map<String, String> attachments;
+    //protostuff按字段声明顺序编号，新增字段只能加在最后，否则新老版本互相解析错位
+    private int methodId;   //方法id，0表示未使用
+    private int serviceId;  //服务id，0表示未使用
+    private int timeout;    //调用方剩余的超时时间(ms)，0表示未知
 
     @Override
-    public Long getRequestId() {
+    public long getRequestId() {
         return requestId;
     }
 
-    public void setRequestId(Long requestId) {
+    public void setRequestId(long requestId) {
         this.requestId = requestId;
     }
 
@@ -49,6 +53,24 @@ public class DefaultRequest implements Serializable, Request {
         this.methodName = methodName;
     }
 
+    @Override
+    public int getMethodId() {
+        return methodId;
+    }
+
+    public void setMethodId(int methodId) {
+        this.methodId = methodId;
+    }
+
+    @Override
+    public int getServiceId() {
+        return serviceId;
+    }
+
+    public void setServiceId(int serviceId) {
+        this.serviceId = serviceId;
+    }
+
     @Override
     public Object[] getArguments() {
         return arguments;
@@ -71,10 +93,24 @@ public class DefaultRequest implements Serializable, Request {
         this.type = type;
     }
 
+    @Override
     public byte getType() {
         return type;
     }
 
+    @Override
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    public void setAttachments(Map<String, String> attachments) {
+        this.attachments = attachments;
+    }
+
     @Override
     public Map<String, String> getAttachments() {
         return attachments != null ? attachments : Collections.EMPTY_MAP;
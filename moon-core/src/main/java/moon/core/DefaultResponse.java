@@ -14,19 +14,19 @@ public class DefaultResponse implements Serializable, Response {
 
     private static final long serialVersionUID = -7432143972263049268L;
 
-    private Long requestId;
+    private long requestId;
     private Exception exception;
     private Object result;
     private Map<String, String> attachments;
 
     private long processTime;
 
-    public void setRequestId(Long requestId) {
+    public void setRequestId(long requestId) {
         this.requestId = requestId;
     }
 
     @Override
-    public Long getRequestId() {
+    public long getRequestId() {
         return requestId;
     }
 
@@ -1,92 +1,61 @@
 package moon.core;
 
-import moon.exception.RpcFrameworkException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.util.concurrent.CancellationException;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 /**
  * @author Ricky Fung
  */
 public class DefaultResponseFuture<T> extends AbstractResponseFuture<T> {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultResponseFuture.class);
 
-    private volatile T result;
-    private volatile Throwable err;
-    private CountDownLatch latch;
+    //listener默认的执行线程池，为null时由完成future的线程直接执行
+    private final Executor callbackExecutor;
 
     public DefaultResponseFuture(long timeoutInMillis) {
-        super(timeoutInMillis);
-    }
-
-    @Override
-    public T get() throws InterruptedException {
-        if(!this.isDone()) {
-            boolean wait = this.prepareForWait();
-            if(wait) {
-                this.latch.await();
-            }
-        }
-        return returnResult();
+        this(timeoutInMillis, null);
     }
 
-    @Override
-    public boolean isSuccess() {
-        return isDone() && err==null;
+    public DefaultResponseFuture(long timeoutInMillis, Executor callbackExecutor) {
+        super(timeoutInMillis);
+        this.callbackExecutor = callbackExecutor;
     }
 
     @Override
     public void setResult(T result) {
-        synchronized(this) {
-            if(!this.isDone()) {
-                this.result = result;
-                this.state = FutureState.DONE;
-                if(this.latch != null) {
-                    this.latch.countDown();
-                }
-            }
-        }
+        this.complete(result);
     }
 
     @Override
     public void setFailure(Throwable throwable) {
-        if(!(throwable instanceof IOException) && !(throwable instanceof SecurityException)) {
-            throwable = new IOException(throwable);
-        }
-
-        synchronized(this) {
-            if(!this.isDone()) {
-                this.err = throwable;
-                this.state = FutureState.DONE;
-                if(this.latch != null) {
-                    this.latch.countDown();
-                }
-            }
-        }
+        this.completeExceptionally(throwable);
     }
 
-    private T returnResult() throws CancellationException {
-        if(this.err != null) {
-            if(this.state == FutureState.CANCELLED) {
-                throw new CancellationException();
-            } else {
-                throw new RpcFrameworkException(this.err);
-            }
-        } else {
-            return this.result;
-        }
+    @Override
+    public ResponseFuture<T> addListener(FutureListener<T> listener) {
+        return addListener(listener, callbackExecutor);
     }
 
-    private boolean prepareForWait() {
-        synchronized(this) {
-            if(this.isDone()) {
-                return false;
-            } else {
-                if(this.latch == null) {
-                    this.latch = new CountDownLatch(1);
+    @Override
+    public ResponseFuture<T> addListener(final FutureListener<T> listener, Executor executor) {
+        BiConsumer<T, Throwable> action = new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept(T result, Throwable throwable) {
+                try {
+                    listener.operationComplete(DefaultResponseFuture.this);
+                } catch (Throwable e) {
+                    logger.error("ResponseFuture listener error", e);
                 }
-                return true;
             }
+        };
+        if (executor != null) {
+            this.whenCompleteAsync(action, executor);
+        } else {
+            this.whenComplete(action);
         }
+        return this;
     }
 }
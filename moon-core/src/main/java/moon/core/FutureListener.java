@@ -0,0 +1,11 @@
+package moon.core;
+
+/**
+ * ResponseFuture完成(成功、失败、取消)时的回调
+ *
+ * @author Ricky Fung
+ */
+public interface FutureListener<T> {
+
+    void operationComplete(ResponseFuture<T> future) throws Exception;
+}
@@ -0,0 +1,18 @@
+package moon.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记接口中的void方法为单向调用: 只发送请求，不等待也不返回响应
+ *
+ * @author Ricky Fung
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Oneway {
+}
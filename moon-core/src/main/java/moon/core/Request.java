@@ -9,12 +9,35 @@ import java.util.Map;
  */
 public interface Request {
 
-    Long getRequestId();
+    long getRequestId();
 
     String getInterfaceName();
 
+    /**
+     * 服务id，0表示未使用服务id，由group/interface/version路由
+     * @see moon.util.FrameworkUtils#getServiceId(moon.common.URL)
+     */
+    int getServiceId();
+
     String getMethodName();
 
+    /**
+     * 方法id，0表示未使用方法id，由方法名和参数类型确定方法
+     * @see moon.rpc.MethodTable
+     */
+    int getMethodId();
+
+    /**
+     * 请求类型: 同步、异步、单向
+     */
+    byte getType();
+
+    /**
+     * 调用方剩余的超时时间(ms)，provider据此得到请求的截止时间，0表示未知
+     * @see moon.rpc.RpcContext#getDeadline()
+     */
+    int getTimeout();
+
     Object[] getArguments();
 
     Class<?>[] getParameterTypes();
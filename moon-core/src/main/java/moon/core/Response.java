@@ -9,7 +9,7 @@ import java.util.Map;
  */
 public interface Response {
 
-    Long getRequestId();
+    long getRequestId();
 
     Exception getException();
 
@@ -1,5 +1,10 @@
 package moon.core;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 /**
  * ${DESCRIPTION}
  *
@@ -7,8 +12,13 @@ package moon.core;
  */
 public interface ResponseFuture<T> {
 
+    /**
+     * 最多等待到请求超时
+     */
     T get() throws InterruptedException;
 
+    T get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException;
+
     boolean isCancelled();
 
     boolean isDone();
@@ -21,4 +31,16 @@ public interface ResponseFuture<T> {
 
     boolean isTimeout();
 
+    /**
+     * 完成时回调，在future配置的回调线程池中执行，未配置时由完成future的线程执行
+     */
+    ResponseFuture<T> addListener(FutureListener<T> listener);
+
+    /**
+     * @param executor 为null时由完成future的线程直接执行
+     */
+    ResponseFuture<T> addListener(FutureListener<T> listener, Executor executor);
+
+    CompletableFuture<T> toCompletableFuture();
+
 }
@@ -0,0 +1,23 @@
+package moon.exception;
+
+/**
+ * 服务端过载(线程池满、排队超时)时快速返回的异常，请求没有被执行；
+ * consumer端连接的待响应请求数达到上限或写缓冲超过高水位时同样抛出，请求没有发送
+ *
+ * @author Ricky Fung
+ */
+public class RpcOverloadException extends RpcFrameworkException {
+
+    private static final long serialVersionUID = 5207263104852210471L;
+
+    public RpcOverloadException() {
+    }
+
+    public RpcOverloadException(String message) {
+        super(message);
+    }
+
+    public RpcOverloadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
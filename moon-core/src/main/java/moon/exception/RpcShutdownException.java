@@ -0,0 +1,23 @@
+package moon.exception;
+
+/**
+ * provider正在下线(停止服务前的排空阶段)时拒绝新请求的异常，请求没有被执行，
+ * consumer可以安全地重试其他provider
+ *
+ * @author Ricky Fung
+ */
+public class RpcShutdownException extends RpcOverloadException {
+
+    private static final long serialVersionUID = -3318270545916742617L;
+
+    public RpcShutdownException() {
+    }
+
+    public RpcShutdownException(String message) {
+        super(message);
+    }
+
+    public RpcShutdownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,16 +1,22 @@
 package moon.protocol;
 
 import moon.common.URL;
+import moon.common.URLParam;
+import moon.core.DefaultRequest;
 import moon.core.Request;
 import moon.core.Response;
+import moon.core.ResponseFuture;
 import moon.exception.RpcFrameworkException;
+import moon.exception.RpcOverloadException;
 import moon.rpc.*;
 import moon.transport.NettyClient;
 import moon.transport.NettyClientImpl;
 import moon.transport.NettyServer;
 import moon.transport.NettyServerImpl;
+import moon.util.Constants;
 import moon.util.FrameworkUtils;
 
+import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -43,16 +49,140 @@ public class DefaultRpcProtocol extends AbstractProtocol {
 
     class DefaultRpcReference<T> extends AbstractReference<T> {
         private NettyClient client;
+        //本地接口的方法表，按方法id查找方法名和参数类型
+        private final MethodTable localTable;
+        //provider与本地接口的方法表一致时才使用方法id，否则为null
+        private final MethodTable methodTable;
+        //provider发布的服务id，0表示按group/interface/version路由
+        private final int serviceId;
+        //consumer配置的超时时间
+        private final int timeout;
 
         DefaultRpcReference(Class<T> clz, URL url, URL serviceUrl) {
             super(clz, url, serviceUrl);
-            this.client = new NettyClientImpl(serviceUrl);
+            //传输实现、连接池由consumer自己的protocol配置决定，而不是provider的；
+            //心跳间隔沿用provider在服务url中声明的值，与provider的空闲检测保持一致
+            URL clientUrl = serviceUrl.clone0();
+            clientUrl.addParameter(URLParam.transport.getName(), url.getParameter(URLParam.transport.getName()));
+            clientUrl.addParameter(URLParam.epollMode.getName(), url.getParameter(URLParam.epollMode.getName()));
+            clientUrl.addParameter(URLParam.ioThreads.getName(), url.getParameter(URLParam.ioThreads.getName()));
+            clientUrl.addParameter(URLParam.connections.getName(), url.getParameter(URLParam.connections.getName()));
+            clientUrl.addParameter(URLParam.connectionSelector.getName(), url.getParameter(URLParam.connectionSelector.getName()));
+            clientUrl.addParameter(URLParam.virtualThreads.getName(), url.getParameter(URLParam.virtualThreads.getName()));
+            clientUrl.addParameter(URLParam.writeBatchSize.getName(), url.getParameter(URLParam.writeBatchSize.getName()));
+            clientUrl.addParameter(URLParam.writeBatchBytes.getName(), url.getParameter(URLParam.writeBatchBytes.getName()));
+            clientUrl.addParameter(URLParam.writeBatchDelay.getName(), url.getParameter(URLParam.writeBatchDelay.getName()));
+            clientUrl.addParameter(URLParam.writeBufferLowWaterMark.getName(), url.getParameter(URLParam.writeBufferLowWaterMark.getName()));
+            clientUrl.addParameter(URLParam.writeBufferHighWaterMark.getName(), url.getParameter(URLParam.writeBufferHighWaterMark.getName()));
+            clientUrl.addParameter(URLParam.connectTimeout.getName(), url.getParameter(URLParam.connectTimeout.getName()));
+            clientUrl.addParameter(URLParam.reconnectInterval.getName(), url.getParameter(URLParam.reconnectInterval.getName()));
+            clientUrl.addParameter(URLParam.maxReconnectInterval.getName(), url.getParameter(URLParam.maxReconnectInterval.getName()));
+            clientUrl.addParameter(URLParam.maxPendingRequests.getName(), url.getParameter(URLParam.maxPendingRequests.getName()));
+            clientUrl.addParameter(URLParam.backpressureTimeout.getName(), url.getParameter(URLParam.backpressureTimeout.getName()));
+            this.client = new NettyClientImpl(clientUrl);
+            this.localTable = MethodTable.of(clz);
+            this.methodTable = localTable.getDigest().equals(serviceUrl.getParameter(URLParam.methodDigest.getName())) ? localTable : null;
+            this.serviceId = FrameworkUtils.getServiceId(serviceUrl);
+            this.timeout = url.getIntParameter(URLParam.requestTimeout.getName(), URLParam.requestTimeout.getIntValue());
+            if (methodTable == null) {
+                logger.info("method digest mismatch, send method name and parameter types, url={}", serviceUrl.getUri());
+            }
+        }
+
+        /**
+         * provider支持服务id和方法id时直接在原请求上填写服务id、方法id和本次调用剩余的超时时间；
+         * 老版本或方法表不一致的provider需要接口名、方法名等，复制一份，原请求不变(failover重试时可能发往新版本provider)
+         */
+        private Request toWireRequest(Request request) {
+            if (!(request instanceof DefaultRequest)) {
+                return request;
+            }
+            DefaultRequest defaultRequest = (DefaultRequest) request;
+            int methodId = methodTable != null ? getMethodId(request) : 0;
+            if (serviceId > 0 && methodId > 0) {
+                defaultRequest.setServiceId(serviceId);
+                defaultRequest.setMethodId(methodId);
+                defaultRequest.setTimeout(getTimeout(request));
+                return defaultRequest;
+            }
+            DefaultRequest wireRequest = new DefaultRequest();
+            wireRequest.setRequestId(request.getRequestId());
+            wireRequest.setServiceId(serviceId);
+            wireRequest.setMethodId(methodId);
+            if (serviceId == 0) {
+                wireRequest.setInterfaceName(request.getInterfaceName() != null ? request.getInterfaceName() : clz.getName());
+            }
+            if (methodId == 0) {
+                Method method = request.getMethodName() == null ? localTable.getMethod(request.getMethodId()) : null;
+                wireRequest.setMethodName(method != null ? method.getName() : request.getMethodName());
+                wireRequest.setParameterTypes(method != null ? localTable.getParameterTypes(request.getMethodId()) : request.getParameterTypes());
+            }
+            wireRequest.setArguments(request.getArguments());
+            wireRequest.setType(request.getType());
+            wireRequest.setTimeout(getTimeout(request));
+            if (serviceId == 0) {
+                //老版本provider没有服务id，按group/interface/version路由；attachments复制一份再写入
+                wireRequest.setAttachments(new HashMap<>(request.getAttachments()));
+                wireRequest.setAttachment(URLParam.version.getName(), serviceUrl.getVersion());
+                wireRequest.setAttachment(URLParam.group.getName(), serviceUrl.getGroup());
+            } else if (!request.getAttachments().isEmpty()) {
+                wireRequest.setAttachments(request.getAttachments());
+            }
+            return wireRequest;
+        }
+
+        /**
+         * 代理创建请求时已经带上了本地接口的方法id，其他来源的请求按方法名和参数类型查找
+         */
+        private int getMethodId(Request request) {
+            int methodId = request.getMethodId();
+            return methodId > 0 ? methodId : methodTable.getMethodId(request.getMethodName(), request.getParameterTypes());
+        }
+
+        private String getMethodName(Request request) {
+            Method method = request.getMethodName() == null ? localTable.getMethod(request.getMethodId()) : null;
+            return method != null ? method.getName() : request.getMethodName();
+        }
+
+        /**
+         * 在provider处理请求的过程中发起的调用，超时时间不超过外层请求剩余的时间
+         */
+        private int getTimeout(Request request) {
+            RpcContext context = RpcContext.getContext();
+            if (!context.hasDeadline()) {
+                return timeout;
+            }
+            long remaining = context.getRemainingTime();
+            if (remaining <= 0) {
+                throw new RpcFrameworkException(String.format("deadline exceeded before call %s.%s, request id:%d",
+                        clz.getName(), getMethodName(request), request.getRequestId()));
+            }
+            return timeout > 0 && timeout < remaining ? timeout : (int) Math.min(remaining, Integer.MAX_VALUE);
         }
 
         @Override
         public Response doCall(Request request) {
             try {
-                return client.invokeSync(request);
+                //单向调用不创建也不注册future
+                if (request.getType() == Constants.REQUEST_ONEWAY) {
+                    client.invokeOneway(toWireRequest(request));
+                    return null;
+                }
+                return client.invokeSync(toWireRequest(request));
+            } catch (RpcOverloadException e) {
+                //连接背压，直接抛出便于调用方识别
+                throw e;
+            } catch (Exception e) {
+                throw new RpcFrameworkException("invoke exception", e);
+            }
+        }
+
+        @Override
+        protected ResponseFuture<Response> doCallAsync(Request request) {
+            try {
+                return client.invokeAsync(toWireRequest(request));
+            } catch (RpcOverloadException e) {
+                throw e;
             } catch (Exception e) {
                 throw new RpcFrameworkException("invoke exception", e);
             }
@@ -3,6 +3,7 @@ package moon.protocol;
 import moon.common.URL;
 import moon.core.Request;
 import moon.core.Response;
+import moon.core.ResponseFuture;
 import moon.exception.RpcFrameworkException;
 import moon.filter.Filter;
 import moon.rpc.Exporter;
@@ -72,6 +73,11 @@ public class ProtocolFilterWrapper implements Protocol {
                     return null;
                 }
 
+                @Override
+                public ResponseFuture<Response> callAsync(Request request) {
+                    return lr.callAsync(request);
+                }
+
                 @Override
                 public void init() {
                     lr.init();
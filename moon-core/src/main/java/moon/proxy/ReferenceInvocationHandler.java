@@ -3,9 +3,12 @@ package moon.proxy;
 import moon.cluster.Cluster;
 import moon.common.URLParam;
 import moon.core.DefaultRequest;
+import moon.core.Oneway;
+import moon.core.Request;
 import moon.core.Response;
 import moon.exception.RpcFrameworkException;
 import moon.exception.RpcServiceException;
+import moon.rpc.MethodTable;
 import moon.util.Constants;
 import moon.util.ExceptionUtil;
 import moon.util.RequestIdGenerator;
@@ -17,22 +20,40 @@ import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
 
 /**
  * ${DESCRIPTION}
  *
  * @author Ricky Fung
  */
-public class ReferenceInvocationHandler<T> implements InvocationHandler {
+public class ReferenceInvocationHandler<T> implements InvocationHandler, StubInvocationHandler {
     private Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private List<Cluster<T>> clusters;
     private Class<T> clz;
+    //按方法id预先计算好的调用元数据，下标为id-1
+    private final MethodMeta[] metas;
+    //jdk动态代理回调时按Method查找
+    private final Map<Method, MethodMeta> metaByMethod;
 
     public ReferenceInvocationHandler(Class<T> clz, List<Cluster<T>> clusters) {
         this.clz = clz;
         this.clusters = clusters;
+        MethodTable table = MethodTable.of(clz);
+        this.metas = new MethodMeta[table.size()];
+        Map<Method, MethodMeta> metaByMethod = new HashMap<>(metas.length * 2);
+        for (int i = 0; i < metas.length; i++) {
+            Method method = table.getMethod(i + 1);
+            metas[i] = new MethodMeta(i + 1, method, isOnewayMethod(method));
+            metaByMethod.put(method, metas[i]);
+        }
+        this.metaByMethod = metaByMethod;
     }
+
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         //toString,equals,hashCode,finalize等接口未声明的方法不进行远程调用
@@ -42,27 +63,45 @@ public class ReferenceInvocationHandler<T> implements InvocationHandler {
             }
             throw new RpcFrameworkException("can not invoke local method:" + method.getName());
         }
-        //组装request通讯对象
+        MethodMeta meta = metaByMethod.get(method);
+        if (meta == null) {
+            throw new RpcFrameworkException("can not invoke method:" + method);
+        }
+        return invoke(meta, args);
+    }
+
+    @Override
+    public Object invoke(int methodId, Object[] args) throws Throwable {
+        return invoke(metas[methodId - 1], args);
+    }
+
+    private Object invoke(MethodMeta meta, Object[] args) throws Throwable {
+        //组装request通讯对象，只携带方法id，方法相关的字段都是预先计算好的；
+        //接口名、方法名和参数类型只在发往老版本provider时由reference按方法id补上
         DefaultRequest request = new DefaultRequest();
         //递增生成一个RequestId，用于映射rpcFuture保存在map中
         request.setRequestId(RequestIdGenerator.getRequestId());
-        request.setInterfaceName(method.getDeclaringClass().getName());
-        request.setMethodName(method.getName());
-        //方法入参类型
-        request.setParameterTypes(method.getParameterTypes());
+        request.setMethodId(meta.methodId);
         request.setArguments(args);
-        request.setType(Constants.REQUEST_SYNC);
+        request.setType(meta.type);
 
-
-        boolean throwException = checkMethodExceptionSignature(method);
         //cluster 封装reference《——》service通讯对象
         for (Cluster<T> cluster : clusters) {
-            //调用参数
-            request.setAttachment(URLParam.version.getName(), cluster.getUrl().getVersion());
-            request.setAttachment(URLParam.group.getName(), cluster.getUrl().getGroup());
+            //返回CompletableFuture/CompletionStage/Future的方法走异步调用
+            if (meta.type == Constants.REQUEST_ASYNC) {
+                return invokeAsync(cluster, request);
+            }
+            boolean oneway = meta.type == Constants.REQUEST_ONEWAY;
             try {
                 //远程调用服务
                 Response resp = cluster.call(request);
+                if (oneway) {
+                    //单向调用只有发送失败时才会有response
+                    if (resp != null) {
+                        getValue(resp);
+                    }
+                    return null;
+                }
                 return getValue(resp);
             } catch (RuntimeException e) {
                 //分别处理check和runtime异常
@@ -76,9 +115,9 @@ public class ReferenceInvocationHandler<T> implements InvocationHandler {
                                         + ", errmsg:" + t.getMessage());
                         throw new RpcServiceException(msg);
                     }
-                } else if (!throwException) {
+                } else if (!meta.throwException) {
                     logger.warn(this.getClass().getSimpleName()+" invoke false, so return default value: uri=" + cluster.getUrl().getUri(), e);
-                    return getDefaultReturnValue(method.getReturnType());
+                    return getDefaultReturnValue(meta.returnType);
                 } else {
                     logger.error(this.getClass().getSimpleName()+" invoke Error: uri=" + cluster.getUrl().getUri(), e);
                     throw e;
@@ -88,7 +127,68 @@ public class ReferenceInvocationHandler<T> implements InvocationHandler {
         throw new RpcServiceException("Reference call Error: cluster not exist, interface=" + clz.getName());
     }
 
-    private boolean checkMethodExceptionSignature(Method method) {
+    /**
+     * 异步调用，业务异常以其原始cause完成future，其余异常原样传递
+     */
+    private CompletableFuture<Object> invokeAsync(final Cluster<T> cluster, Request request) {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        CompletableFuture<Response> future;
+        try {
+            future = cluster.callAsync(request);
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete(new BiConsumer<Response, Throwable>() {
+            @Override
+            public void accept(Response response, Throwable throwable) {
+                try {
+                    if (throwable != null) {
+                        throw throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause() : throwable;
+                    }
+                    result.complete(getValue(response));
+                } catch (Throwable e) {
+                    if (e instanceof Exception && ExceptionUtil.isBizException((Exception) e) && e.getCause() != null) {
+                        result.completeExceptionally(e.getCause());
+                    } else {
+                        logger.error(ReferenceInvocationHandler.this.getClass().getSimpleName() + " invoke Error: uri="
+                                + cluster.getUrl().getUri(), e);
+                        result.completeExceptionally(e);
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 标注了@Oneway或者配置了<moon:method oneway="true">的void方法
+     */
+    private boolean isOnewayMethod(Method method) {
+        boolean oneway = method.isAnnotationPresent(Oneway.class);
+        //各cluster来自同一个reference配置，取第一个
+        if (!oneway && clusters != null && !clusters.isEmpty()) {
+            oneway = clusters.get(0).getUrl().getBooleanParameter(
+                    method.getName() + "." + URLParam.oneway.getName(), URLParam.oneway.isBoolValue());
+        }
+        if (oneway && method.getReturnType() != void.class) {
+            logger.warn("oneway is only supported by void method, ignore it: " + method);
+            oneway = false;
+        }
+        return oneway;
+    }
+
+    /**
+     * 返回CompletionStage或CompletableFuture的方法异步调用，provider等待其完成后再写响应；
+     * 普通的Future不能被等待也不能序列化，仍按同步方法处理
+     */
+    private static boolean isAsyncMethod(Method method) {
+        Class<?> returnType = method.getReturnType();
+        return returnType == CompletionStage.class || returnType == CompletableFuture.class;
+    }
+
+    private static boolean checkMethodExceptionSignature(Method method) {
         Class<?>[] exps = method.getExceptionTypes();
         return exps!=null && exps.length>0;
     }
@@ -110,6 +210,27 @@ public class ReferenceInvocationHandler<T> implements InvocationHandler {
         return null;
     }
 
+    /**
+     * 每个方法调用时不变的信息，创建代理时计算一次
+     */
+    private static final class MethodMeta {
+        final int methodId;
+        final Class<?> returnType;
+        final byte type;
+        final boolean throwException;
+
+        MethodMeta(int methodId, Method method, boolean oneway) {
+            this.methodId = methodId;
+            this.returnType = method.getReturnType();
+            if (isAsyncMethod(method)) {
+                this.type = Constants.REQUEST_ASYNC;
+            } else {
+                this.type = oneway ? Constants.REQUEST_ONEWAY : Constants.REQUEST_SYNC;
+            }
+            this.throwException = checkMethodExceptionSignature(method);
+        }
+    }
+
     private static class PrimitiveDefault {
         private static boolean defaultBoolean;
         private static char defaultChar;
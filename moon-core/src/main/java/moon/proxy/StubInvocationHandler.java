@@ -0,0 +1,15 @@
+package moon.proxy;
+
+/**
+ * 生成的stub代理类回调的接口，按方法id分发，不需要查找Method
+ *
+ * @author Ricky Fung
+ */
+public interface StubInvocationHandler {
+
+    /**
+     * @param methodId 方法在{@link moon.rpc.MethodTable}中的id
+     * @param args 方法参数，无参方法为null
+     */
+    Object invoke(int methodId, Object[] args) throws Throwable;
+}
@@ -0,0 +1,394 @@
+package moon.proxy.stub;
+
+import moon.proxy.StubInvocationHandler;
+import moon.rpc.MethodTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 为接口生成stub代理类的字节码，不依赖字节码库。生成的类形如:
+ * <pre>
+ * public final class Xxx$MoonStub implements Xxx {
+ *     private final StubInvocationHandler handler;
+ *     public Xxx$MoonStub(StubInvocationHandler handler) { this.handler = handler; }
+ *     public R method(A a, B b) { return (R) handler.invoke(methodId, new Object[]{a, b}); }
+ * }
+ * </pre>
+ * 方法体没有分支，所以不需要StackMapTable。
+ *
+ * @author Ricky Fung
+ */
+final class StubGenerator {
+    private static final int VERSION_JAVA8 = 52;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String HANDLER = StubInvocationHandler.class.getName().replace('.', '/');
+    private static final String HANDLER_FIELD = "handler";
+
+    private final ConstantPool pool = new ConstantPool();
+    private final Class<?> clz;
+    private final String className;
+
+    StubGenerator(Class<?> clz, String className) {
+        this.clz = clz;
+        this.className = className.replace('.', '/');
+    }
+
+    byte[] generate() {
+        MethodTable table = MethodTable.of(clz);
+        int thisClass = pool.classRef(className);
+        int superClass = pool.classRef(OBJECT);
+        int iface = pool.classRef(internalName(clz));
+        int fieldName = pool.utf8(HANDLER_FIELD);
+        int fieldDesc = pool.utf8("L" + HANDLER + ";");
+        int code = pool.utf8("Code");
+
+        //先生成方法，常量池随之填满
+        ByteArrayOutputStream methods = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(methods);
+            writeConstructor(out, code);
+            for (int id = 1; id <= table.size(); id++) {
+                writeMethod(out, code, table.getMethod(id), id);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            DataOutputStream cf = new DataOutputStream(bytes);
+            cf.writeInt(0xCAFEBABE);
+            cf.writeShort(0);
+            cf.writeShort(VERSION_JAVA8);
+            pool.writeTo(cf);
+            cf.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            cf.writeShort(thisClass);
+            cf.writeShort(superClass);
+            cf.writeShort(1);
+            cf.writeShort(iface);
+            //fields
+            cf.writeShort(1);
+            cf.writeShort(ACC_PRIVATE | ACC_FINAL);
+            cf.writeShort(fieldName);
+            cf.writeShort(fieldDesc);
+            cf.writeShort(0);
+            //methods
+            cf.writeShort(table.size() + 1);
+            cf.write(methods.toByteArray());
+            //attributes
+            cf.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeConstructor(DataOutputStream out, int code) throws IOException {
+        Code c = new Code();
+        c.op(0x2A);                                                     //aload_0
+        c.op(0xB7).u2(pool.methodRef(OBJECT, "<init>", "()V"));          //invokespecial
+        c.op(0x2A);                                                     //aload_0
+        c.op(0x2B);                                                     //aload_1
+        c.op(0xB5).u2(pool.fieldRef(className, HANDLER_FIELD, "L" + HANDLER + ";")); //putfield
+        c.op(0xB1);                                                     //return
+        writeMethodInfo(out, code, "<init>", "(L" + HANDLER + ";)V", c, 2, 2);
+    }
+
+    private void writeMethod(DataOutputStream out, int code, Method method, int methodId) throws IOException {
+        Class<?>[] types = method.getParameterTypes();
+        Code c = new Code();
+        c.op(0x2A);                                                     //aload_0
+        c.op(0xB4).u2(pool.fieldRef(className, HANDLER_FIELD, "L" + HANDLER + ";")); //getfield
+        pushInt(c, methodId);
+        int slot = 1;
+        if (types.length == 0) {
+            c.op(0x01);                                                 //aconst_null
+        } else {
+            pushInt(c, types.length);
+            c.op(0xBD).u2(pool.classRef(OBJECT));                       //anewarray
+            for (int i = 0; i < types.length; i++) {
+                c.op(0x59);                                             //dup
+                pushInt(c, i);
+                slot += load(c, types[i], slot);
+                box(c, types[i]);
+                c.op(0x53);                                             //aastore
+            }
+        }
+        c.op(0xB9).u2(pool.interfaceMethodRef(HANDLER, "invoke", "(I[Ljava/lang/Object;)Ljava/lang/Object;")).u1(3).u1(0);
+        returnValue(c, method.getReturnType());
+        //handler, methodId, array, array, index, long/double
+        writeMethodInfo(out, code, method.getName(), descriptor(method), c, 7, slot);
+    }
+
+    private void writeMethodInfo(DataOutputStream out, int code, String name, String desc, Code c,
+                                 int maxStack, int maxLocals) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(desc));
+        out.writeShort(1);
+        out.writeShort(code);
+        byte[] bytecode = c.toByteArray();
+        out.writeInt(12 + bytecode.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(bytecode.length);
+        out.write(bytecode);
+        out.writeShort(0);  //exception table
+        out.writeShort(0);  //attributes
+    }
+
+    private void pushInt(Code c, int value) {
+        if (value >= -1 && value <= 5) {
+            c.op(0x03 + value);                                         //iconst_<n>
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            c.op(0x10).u1(value);                                       //bipush
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            c.op(0x11).u2(value);                                       //sipush
+        } else {
+            c.op(0x13).u2(pool.integer(value));                         //ldc_w
+        }
+    }
+
+    /** @return 参数占用的局部变量槽数 **/
+    private int load(Code c, Class<?> type, int slot) {
+        int op;
+        if (type == long.class) {
+            op = 0x16;          //lload
+        } else if (type == float.class) {
+            op = 0x17;          //fload
+        } else if (type == double.class) {
+            op = 0x18;          //dload
+        } else if (type.isPrimitive()) {
+            op = 0x15;          //iload
+        } else {
+            op = 0x19;          //aload
+        }
+        if (slot > 255) {
+            c.op(0xC4).op(op).u2(slot);                                 //wide
+        } else {
+            c.op(op).u1(slot);
+        }
+        return type == long.class || type == double.class ? 2 : 1;
+    }
+
+    private void box(Code c, Class<?> type) {
+        if (!type.isPrimitive()) {
+            return;
+        }
+        String wrapper = internalName(wrapper(type));
+        c.op(0xB8).u2(pool.methodRef(wrapper, "valueOf", "(" + descriptor(type) + ")L" + wrapper + ";")); //invokestatic
+    }
+
+    private void returnValue(Code c, Class<?> type) {
+        if (type == void.class) {
+            c.op(0x57);                                                 //pop
+            c.op(0xB1);                                                 //return
+            return;
+        }
+        if (!type.isPrimitive()) {
+            if (type != Object.class) {
+                c.op(0xC0).u2(pool.classRef(internalName(type)));       //checkcast
+            }
+            c.op(0xB0);                                                 //areturn
+            return;
+        }
+        String wrapper = internalName(wrapper(type));
+        c.op(0xC0).u2(pool.classRef(wrapper));                          //checkcast
+        c.op(0xB6).u2(pool.methodRef(wrapper, type.getName() + "Value", "()" + descriptor(type))); //invokevirtual
+        if (type == long.class) {
+            c.op(0xAD);         //lreturn
+        } else if (type == float.class) {
+            c.op(0xAE);         //freturn
+        } else if (type == double.class) {
+            c.op(0xAF);         //dreturn
+        } else {
+            c.op(0xAC);         //ireturn
+        }
+    }
+
+    private static Class<?> wrapper(Class<?> type) {
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == byte.class) return Byte.class;
+        if (type == short.class) return Short.class;
+        if (type == char.class) return Character.class;
+        if (type == float.class) return Float.class;
+        if (type == double.class) return Double.class;
+        throw new IllegalArgumentException("not primitive type: " + type);
+    }
+
+    private static String internalName(Class<?> type) {
+        //数组的类常量使用描述符形式
+        return type.isArray() ? descriptor(type) : type.getName().replace('.', '/');
+    }
+
+    static String descriptor(Method method) {
+        StringBuilder sb = new StringBuilder("(");
+        for (Class<?> type : method.getParameterTypes()) {
+            sb.append(descriptor(type));
+        }
+        return sb.append(')').append(descriptor(method.getReturnType())).toString();
+    }
+
+    static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return type.getName().replace('.', '/');
+        }
+        if (type == void.class) return "V";
+        if (type == int.class) return "I";
+        if (type == long.class) return "J";
+        if (type == boolean.class) return "Z";
+        if (type == byte.class) return "B";
+        if (type == short.class) return "S";
+        if (type == char.class) return "C";
+        if (type == float.class) return "F";
+        if (type == double.class) return "D";
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    private static final class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+
+        Code op(int op) {
+            bytes.write(op);
+            return this;
+        }
+
+        Code u1(int v) {
+            bytes.write(v);
+            return this;
+        }
+
+        Code u2(int v) {
+            bytes.write(v >>> 8);
+            bytes.write(v);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * 常量池，相同的常量只写入一次
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int INTEGER = 3;
+        private static final int CLASS = 7;
+        private static final int FIELD_REF = 9;
+        private static final int METHOD_REF = 10;
+        private static final int INTERFACE_METHOD_REF = 11;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            String key = "u" + value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = add(key);
+                try {
+                    out.writeByte(UTF8);
+                    out.writeUTF(value);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return index;
+        }
+
+        int integer(int value) {
+            String key = "i" + value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = add(key);
+                write(INTEGER, value >>> 16, value & 0xFFFF);
+            }
+            return index;
+        }
+
+        int classRef(String internalName) {
+            String key = "c" + internalName;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                int name = utf8(internalName);
+                index = add(key);
+                write(CLASS, name, -1);
+            }
+            return index;
+        }
+
+        int fieldRef(String owner, String name, String desc) {
+            return memberRef(FIELD_REF, owner, name, desc);
+        }
+
+        int methodRef(String owner, String name, String desc) {
+            return memberRef(METHOD_REF, owner, name, desc);
+        }
+
+        int interfaceMethodRef(String owner, String name, String desc) {
+            return memberRef(INTERFACE_METHOD_REF, owner, name, desc);
+        }
+
+        private int memberRef(int tag, String owner, String name, String desc) {
+            String key = tag + owner + "." + name + desc;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                int ownerIndex = classRef(owner);
+                int nameAndType = nameAndType(name, desc);
+                index = add(key);
+                write(tag, ownerIndex, nameAndType);
+            }
+            return index;
+        }
+
+        private int nameAndType(String name, String desc) {
+            String key = "n" + name + desc;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                int descIndex = utf8(desc);
+                index = add(key);
+                write(NAME_AND_TYPE, nameIndex, descIndex);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            int index = count++;
+            indexes.put(key, index);
+            return index;
+        }
+
+        /** tag + 一个或两个u2 **/
+        private void write(int tag, int first, int second) {
+            try {
+                out.writeByte(tag);
+                out.writeShort(first);
+                if (second >= 0) {
+                    out.writeShort(second);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void writeTo(DataOutputStream cf) throws IOException {
+            cf.writeShort(count);
+            cf.write(bytes.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package moon.proxy.stub;
+
+import moon.exception.RpcFrameworkException;
+import moon.proxy.ProxyFactory;
+import moon.proxy.StubInvocationHandler;
+import moon.proxy.jdk.JdkProxyFactory;
+import moon.rpc.MethodTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在refer时为接口生成stub代理类，每个方法直接以方法id回调{@link StubInvocationHandler}，
+ * 没有jdk动态代理的Method查找和反射分发。
+ * 非public接口无法从其他类加载器访问，回退到jdk动态代理。
+ *
+ * @author Ricky Fung
+ */
+public class StubProxyFactory implements ProxyFactory {
+    private static final Logger logger = LoggerFactory.getLogger(StubProxyFactory.class);
+
+    private static final ConcurrentHashMap<Class<?>, Constructor<?>> STUBS = new ConcurrentHashMap<>();
+    private static final AtomicInteger SEQ = new AtomicInteger();
+
+    private final ProxyFactory fallback = new JdkProxyFactory();
+
+    @Override
+    public <T> T getProxy(Class<T> clz, InvocationHandler invocationHandler) {
+        if (!Modifier.isPublic(clz.getModifiers())) {
+            logger.warn("interface {} is not public, use jdk proxy", clz.getName());
+            return fallback.getProxy(clz, invocationHandler);
+        }
+        StubInvocationHandler handler;
+        if (invocationHandler instanceof StubInvocationHandler) {
+            handler = (StubInvocationHandler) invocationHandler;
+        } else {
+            handler = new InvocationHandlerAdapter(clz, invocationHandler);
+        }
+        try {
+            Object stub = getConstructor(clz).newInstance(handler);
+            if (handler instanceof InvocationHandlerAdapter) {
+                ((InvocationHandlerAdapter) handler).proxy = stub;
+            }
+            return clz.cast(stub);
+        } catch (Exception e) {
+            throw new RpcFrameworkException("create stub proxy failure: " + clz.getName(), e);
+        }
+    }
+
+    private static Constructor<?> getConstructor(Class<?> clz) throws Exception {
+        Constructor<?> constructor = STUBS.get(clz);
+        if (constructor == null) {
+            synchronized (STUBS) {
+                constructor = STUBS.get(clz);
+                if (constructor == null) {
+                    String className = StubProxyFactory.class.getPackage().getName() + "."
+                            + clz.getSimpleName() + "$MoonStub" + SEQ.incrementAndGet();
+                    byte[] bytes = new StubGenerator(clz, className).generate();
+                    Class<?> stubClass = new StubClassLoader(clz.getClassLoader()).define(className, bytes);
+                    constructor = stubClass.getConstructor(StubInvocationHandler.class);
+                    STUBS.put(clz, constructor);
+                    logger.info("generate stub proxy {} for {}", className, clz.getName());
+                }
+            }
+        }
+        return constructor;
+    }
+
+    /**
+     * stub类需要同时看到业务接口(接口的类加载器)和框架类
+     */
+    private static final class StubClassLoader extends ClassLoader {
+        StubClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            return StubProxyFactory.class.getClassLoader().loadClass(name);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * 普通的InvocationHandler按方法id找到Method后回调
+     */
+    private static final class InvocationHandlerAdapter implements StubInvocationHandler {
+        private final MethodTable table;
+        private final InvocationHandler delegate;
+        private volatile Object proxy;
+
+        InvocationHandlerAdapter(Class<?> clz, InvocationHandler delegate) {
+            this.table = MethodTable.of(clz);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object invoke(int methodId, Object[] args) throws Throwable {
+            return delegate.invoke(proxy, table.getMethod(methodId), args);
+        }
+    }
+}
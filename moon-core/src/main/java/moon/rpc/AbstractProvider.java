@@ -4,8 +4,6 @@ import moon.common.URL;
 import moon.core.Request;
 import moon.core.Response;
 
-import java.lang.reflect.Method;
-
 /**
  * @author Ricky Fung
  */
@@ -58,13 +56,4 @@ public abstract class AbstractProvider<T> implements Provider<T> {
 
     protected abstract Response invoke(Request request);
 
-    protected Method lookup(Request request) {
-        try {
-            return clz.getMethod(request.getMethodName(), request.getParameterTypes());
-        } catch (NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        return null;
-    }
-
 }
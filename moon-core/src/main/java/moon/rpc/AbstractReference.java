@@ -1,8 +1,10 @@
 package moon.rpc;
 
 import moon.common.URL;
+import moon.core.FutureListener;
 import moon.core.Request;
 import moon.core.Response;
+import moon.core.ResponseFuture;
 import moon.exception.RpcFrameworkException;
 
 import java.util.concurrent.atomic.AtomicInteger;
@@ -56,6 +58,29 @@ public abstract class AbstractReference<T> implements Reference<T> {
 
     }
 
+    @Override
+    public ResponseFuture<Response> callAsync(final Request request) {
+        if (!isAvailable()) {
+            throw new RpcFrameworkException(this.getClass().getName() + " call Error: node is not available, url=" + url.getUri());
+        }
+        incrActiveCount(request);
+        ResponseFuture<Response> future;
+        try {
+            future = doCallAsync(request);
+        } catch (RuntimeException e) {
+            decrActiveCount(request, null);
+            throw e;
+        }
+        //调用完成，调用次数减一
+        future.addListener(new FutureListener<Response>() {
+            @Override
+            public void operationComplete(ResponseFuture<Response> f) throws Exception {
+                decrActiveCount(request, f.isSuccess() ? f.get() : null);
+            }
+        }, null);
+        return future;
+    }
+
     @Override
     public int activeCount() {
         return activeCounter.get();
@@ -63,6 +88,8 @@ public abstract class AbstractReference<T> implements Reference<T> {
 
     protected abstract Response doCall(Request request);
 
+    protected abstract ResponseFuture<Response> doCallAsync(Request request);
+
     protected void decrActiveCount(Request request, Response response) {
         activeCounter.decrementAndGet();
     }
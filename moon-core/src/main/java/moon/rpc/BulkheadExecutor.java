@@ -0,0 +1,62 @@
+package moon.rpc;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import moon.util.Constants;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 服务(或方法)独立的有界线程池，满了直接拒绝，慢服务不会占满其他服务的线程
+ *
+ * @author Ricky Fung
+ */
+public class BulkheadExecutor extends ThreadPoolExecutor {
+
+    private final String name;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param queues 排队数，0表示没有空闲线程时直接拒绝
+     */
+    public BulkheadExecutor(String name, int coreThreads, int maxThreads, int queues) {
+        super(coreThreads, Math.max(coreThreads, maxThreads), 120, TimeUnit.SECONDS, newQueue(queues),
+                new DefaultThreadFactory(String.format("%s-%s-%s", Constants.FRAMEWORK_NAME, "biz", name)));
+        this.name = name;
+        setRejectedExecutionHandler(new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                rejectedCount.incrementAndGet();
+                throw new RejectedExecutionException("bulkhead is full: " + BulkheadExecutor.this);
+            }
+        });
+    }
+
+    private static BlockingQueue<Runnable> newQueue(int queues) {
+        return queues > 0 ? new LinkedBlockingQueue<Runnable>(queues) : new SynchronousQueue<Runnable>();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public int getQueueSize() {
+        return getQueue().size();
+    }
+
+    @Override
+    public String toString() {
+        return name + "[active=" + getActiveCount() + ", pool=" + getPoolSize() + ", max=" + getMaximumPoolSize()
+                + ", queued=" + getQueueSize() + ", rejected=" + rejectedCount.get() + "]";
+    }
+}
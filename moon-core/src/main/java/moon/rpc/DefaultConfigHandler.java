@@ -84,6 +84,10 @@ public class DefaultConfigHandler implements ConfigHandler {
         return exporter;
     }
 
+    /**
+     * 先从注册中心注销，在shutdownGracePeriod内继续提供服务，等consumer感知到下线不再发来新请求；
+     * 之后关闭服务，关闭时拒绝新请求并等待在途请求处理完
+     */
     @Override
     public <T> void unexport(List<Exporter<T>> exporters, ArrayListMultimap<URL, URL> registryUrls) {
         try {
@@ -91,6 +95,9 @@ public class DefaultConfigHandler implements ConfigHandler {
         } catch (Exception e){
             logger.warn("Exception when unexport registryUrls:{}", registryUrls);
         }
+        if (!registryUrls.isEmpty()) {
+            awaitGracePeriod(exporters);
+        }
 
         for (Exporter<T> exporter : exporters) {
             try {
@@ -101,6 +108,23 @@ public class DefaultConfigHandler implements ConfigHandler {
         }
     }
 
+    private <T> void awaitGracePeriod(List<Exporter<T>> exporters) {
+        long gracePeriod = 0;
+        for (Exporter<T> exporter : exporters) {
+            gracePeriod = Math.max(gracePeriod, exporter.getUrl().getIntParameter(URLParam.shutdownGracePeriod.getName(),
+                    URLParam.shutdownGracePeriod.getIntValue()));
+        }
+        if (gracePeriod <= 0) {
+            return;
+        }
+        logger.info("unregistered, keep serving {}ms before close exporters:{}", gracePeriod, exporters);
+        try {
+            Thread.sleep(gracePeriod);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void unRegister(ArrayListMultimap<URL, URL> registryUrls) {
 
         for (URL serviceUrl : registryUrls.keySet()) {
@@ -6,18 +6,74 @@ import moon.core.Request;
 import moon.core.Response;
 import moon.exception.RpcBizException;
 import moon.exception.RpcFrameworkException;
+import moon.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Ricky Fung
  */
 public class DefaultProvider<T> extends AbstractProvider<T> {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
     protected T proxyImpl;
+    //暴露时构建的调用表: 方法名 -> 重载方法的调用器
+    private final Map<String, MethodInvoker[]> invokers;
+    //按方法id(MethodTable下标)索引的调用器
+    private final MethodInvoker[] invokersById;
 
     public DefaultProvider(T proxyImpl, URL url, Class<T> clz) {
         super(url, clz);
         this.proxyImpl = proxyImpl;
+        MethodTable table = MethodTable.of(clz);
+        this.invokersById = new MethodInvoker[table.size()];
+        for (int i = 0; i < invokersById.length; i++) {
+            invokersById[i] = new MethodInvoker(proxyImpl, table.getMethod(i + 1));
+        }
+        this.invokers = buildInvokers(invokersById);
+    }
+
+    private static Map<String, MethodInvoker[]> buildInvokers(MethodInvoker[] all) {
+        Map<String, List<MethodInvoker>> grouped = new HashMap<>();
+        for (MethodInvoker invoker : all) {
+            String name = invoker.getMethod().getName();
+            List<MethodInvoker> list = grouped.get(name);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                grouped.put(name, list);
+            }
+            list.add(invoker);
+        }
+        Map<String, MethodInvoker[]> invokers = new HashMap<>(grouped.size() * 2);
+        for (Map.Entry<String, List<MethodInvoker>> entry : grouped.entrySet()) {
+            invokers.put(entry.getKey().intern(), entry.getValue().toArray(new MethodInvoker[entry.getValue().size()]));
+        }
+        return Collections.unmodifiableMap(invokers);
+    }
+
+    /**
+     * 有方法id时直接按下标取，否则根据方法名和参数类型查找调用器，重载方法一般只有一两个
+     */
+    protected MethodInvoker lookup(Request request) {
+        int methodId = request.getMethodId();
+        if (methodId > 0) {
+            return methodId <= invokersById.length ? invokersById[methodId - 1] : null;
+        }
+        MethodInvoker[] candidates = invokers.get(request.getMethodName());
+        if (candidates == null) {
+            return null;
+        }
+        for (MethodInvoker invoker : candidates) {
+            if (invoker.matches(request.getParameterTypes())) {
+                return invoker;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -33,25 +89,48 @@ public class DefaultProvider<T> extends AbstractProvider<T> {
     @Override
     public Response invoke(Request request) {
 
+        //根据方法名和参数匹配Method
+        MethodInvoker invoker = lookup(request);
+        //单向调用不构建响应
+        if (request.getType() == Constants.REQUEST_ONEWAY) {
+            invokeOneway(invoker, request);
+            return null;
+        }
         DefaultResponse response = new DefaultResponse();
         response.setRequestId(request.getRequestId());
-        //根据方法名和参数匹配Method
-        Method method = lookup(request);
-        if (method == null) {
+        if (invoker == null) {
             RpcFrameworkException exception =
-                    new RpcFrameworkException("Service method not exist: " + request.getInterfaceName() + "." + request.getMethodName());
+                    new RpcFrameworkException("Service method not exist: " + clz.getName() + "." + methodName(request, invoker));
 
             response.setException(exception);
             return response;
         }
         try {
-            method.setAccessible(true);
-            //通过反射调用对应方法，实现动态代理（ref的对象）
-            Object result = method.invoke(proxyImpl, request.getArguments());
+            //通过预先编译的MethodHandle调用对应方法（ref的对象）
+            Object result = invoker.invoke(request.getArguments());
             response.setResult(result);
-        } catch (Exception e) {
+        } catch (Throwable e) {
             response.setException(new RpcBizException("invoke failure", e));
         }
         return response;
     }
+
+    private String methodName(Request request, MethodInvoker invoker) {
+        if (invoker != null) {
+            return invoker.getMethod().getName();
+        }
+        return request.getMethodId() > 0 ? "#" + request.getMethodId() : request.getMethodName();
+    }
+
+    private void invokeOneway(MethodInvoker invoker, Request request) {
+        if (invoker == null) {
+            logger.warn("Service method not exist: " + clz.getName() + "." + methodName(request, invoker));
+            return;
+        }
+        try {
+            invoker.invoke(request.getArguments());
+        } catch (Throwable e) {
+            logger.error("oneway invoke failure: " + clz.getName() + "." + methodName(request, invoker), e);
+        }
+    }
 }
@@ -0,0 +1,43 @@
+package moon.rpc;
+
+/**
+ * 服务端请求分发方式
+ *
+ * @author Ricky Fung
+ */
+public enum DispatchMode {
+    /** 直接在netty io线程中执行，适合纯内存、不会阻塞的方法 **/
+    DIRECT("direct"),
+    /** 所有服务共享的业务线程池 **/
+    SHARED("shared"),
+    /** 服务独立的线程池 **/
+    DEDICATED("dedicated"),
+    /** 同一连接上的请求按到达顺序依次在共享线程池中执行 **/
+    ORDERED("ordered"),
+    /** 每个请求一个虚拟线程，需要JDK 21+，不支持时回退到shared **/
+    VIRTUAL("virtual");
+
+    private final String name;
+
+    DispatchMode(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 未知的配置返回defaultMode
+     */
+    public static DispatchMode parse(String name, DispatchMode defaultMode) {
+        if (name != null) {
+            for (DispatchMode mode : values()) {
+                if (mode.name.equalsIgnoreCase(name)) {
+                    return mode;
+                }
+            }
+        }
+        return defaultMode;
+    }
+}
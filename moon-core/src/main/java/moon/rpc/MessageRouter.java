@@ -9,7 +9,14 @@ import moon.util.FrameworkUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -18,7 +25,8 @@ import java.util.concurrent.ConcurrentHashMap;
 public class MessageRouter implements MessageHandler {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    private ConcurrentHashMap<String, Provider<?>> providers = new ConcurrentHashMap<>();
+    //不可变的路由表，暴露/取消暴露时整体替换，请求路径上只读不加锁
+    private volatile RoutingTable table = RoutingTable.EMPTY;
 
     public MessageRouter() {}
 
@@ -28,23 +36,42 @@ public class MessageRouter implements MessageHandler {
 
     @Override
     public Response handle(Request request) {
+        return handle(request, route(request));
+    }
+
+    /**
+     * 查找请求对应服务的分发器，服务不存在时返回null
+     */
+    public ServiceDispatcher route(Request request) {
+        int serviceId = request.getServiceId();
+        if (serviceId > 0) {
+            //按consumer发送的服务id直接查找，不再拼接serviceKey
+            return table.get(serviceId);
+        }
         //serviceKey: group/interface/version
-        String serviceKey = FrameworkUtils.getServiceKey(request);
-        //通过之前注册过的map记录，拿到对应请求的provider对象，以空间换时间
-        Provider<?> provider = providers.get(serviceKey);
+        return table.get(FrameworkUtils.getServiceKey(request));
+    }
 
-        if (provider == null) {
-            logger.error(this.getClass().getSimpleName() + " handler Error: provider not exist serviceKey=" + serviceKey);
+    /**
+     * 在已经路由好的服务上处理请求
+     * @param dispatcher {@link #route(Request)}的结果，为null时返回服务不存在的响应
+     */
+    public Response handle(Request request, ServiceDispatcher dispatcher) {
+        if (dispatcher == null) {
+            int serviceId = request.getServiceId();
+            String service = serviceId > 0 ? "serviceId=" + serviceId : "serviceKey=" + FrameworkUtils.getServiceKey(request);
+            logger.error(this.getClass().getSimpleName() + " handler Error: provider not exist " + service);
             RpcFrameworkException exception =
-                    new RpcFrameworkException(this.getClass().getSimpleName() + " handler Error: provider not exist serviceKey="
-                            + serviceKey );
+                    new RpcFrameworkException(this.getClass().getSimpleName() + " handler Error: provider not exist "
+                            + service);
 
             DefaultResponse response = new DefaultResponse();
+            response.setRequestId(request.getRequestId());
             response.setException(exception);
             return response;
         }
 
-        return call(request, provider);
+        return call(request, dispatcher.getProvider());
     }
 
     protected Response call(Request request, Provider<?> provider) {
@@ -52,23 +79,100 @@ public class MessageRouter implements MessageHandler {
             return provider.call(request);
         } catch (Exception e) {
             DefaultResponse response = new DefaultResponse();
+            response.setRequestId(request.getRequestId());
             response.setException(new RpcBizException("provider call process error", e));
             return response;
         }
     }
 
+    /**
+     * 当前暴露的服务分发器，可用于查看各服务线程池的占用情况
+     */
+    public Collection<ServiceDispatcher> getDispatchers() {
+        return table.byKey.values();
+    }
+
     public synchronized void addProvider(Provider<?> provider) {
         String serviceKey = FrameworkUtils.getServiceKey(provider.getUrl());
-        if (providers.containsKey(serviceKey)) {
+        if (table.get(serviceKey) != null) {
             throw new RpcFrameworkException("provider alread exist: " + serviceKey);
         }
-        providers.put(serviceKey, provider);
+        int serviceId = FrameworkUtils.getServiceId(provider.getUrl());
+        if (serviceId > 0 && table.get(serviceId) != null) {
+            throw new RpcFrameworkException("service id conflict: " + serviceKey + " and "
+                    + FrameworkUtils.getServiceKey(table.get(serviceId).getProvider().getUrl()) + ", serviceId=" + serviceId);
+        }
+        this.table = table.add(serviceKey, new ServiceDispatcher(provider));
         logger.info("RequestRouter addProvider: url=" + provider.getUrl());
     }
 
     public synchronized void removeProvider(Provider<?> provider) {
         String serviceKey = FrameworkUtils.getServiceKey(provider.getUrl());
-        providers.remove(serviceKey);
+        ServiceDispatcher dispatcher = table.get(serviceKey);
+        this.table = table.remove(serviceKey);
+        if (dispatcher != null) {
+            dispatcher.destroy();
+        }
         logger.info("RequestRouter removeProvider: url=" + provider.getUrl());
     }
+
+    /**
+     * 路由表: serviceKey(intern后) -> 服务分发器，以及按服务id排序的数组，二分查找，不装箱
+     */
+    private static final class RoutingTable {
+        static final RoutingTable EMPTY = new RoutingTable(Collections.<String, ServiceDispatcher>emptyMap(), new int[0], new ServiceDispatcher[0]);
+
+        private final Map<String, ServiceDispatcher> byKey;
+        private final int[] ids;
+        private final ServiceDispatcher[] byId;
+
+        private RoutingTable(Map<String, ServiceDispatcher> byKey, int[] ids, ServiceDispatcher[] byId) {
+            this.byKey = byKey;
+            this.ids = ids;
+            this.byId = byId;
+        }
+
+        ServiceDispatcher get(String serviceKey) {
+            return byKey.get(serviceKey);
+        }
+
+        ServiceDispatcher get(int serviceId) {
+            int idx = Arrays.binarySearch(ids, serviceId);
+            return idx >= 0 ? byId[idx] : null;
+        }
+
+        RoutingTable add(String serviceKey, ServiceDispatcher dispatcher) {
+            Map<String, ServiceDispatcher> byKey = new HashMap<>(this.byKey);
+            byKey.put(serviceKey.intern(), dispatcher);
+            return build(byKey);
+        }
+
+        RoutingTable remove(String serviceKey) {
+            Map<String, ServiceDispatcher> byKey = new HashMap<>(this.byKey);
+            byKey.remove(serviceKey);
+            return build(byKey);
+        }
+
+        private static RoutingTable build(Map<String, ServiceDispatcher> byKey) {
+            List<ServiceDispatcher> withId = new ArrayList<>(byKey.size());
+            for (ServiceDispatcher dispatcher : byKey.values()) {
+                if (FrameworkUtils.getServiceId(dispatcher.getProvider().getUrl()) > 0) {
+                    withId.add(dispatcher);
+                }
+            }
+            Collections.sort(withId, new Comparator<ServiceDispatcher>() {
+                @Override
+                public int compare(ServiceDispatcher o1, ServiceDispatcher o2) {
+                    return Integer.compare(FrameworkUtils.getServiceId(o1.getProvider().getUrl()), FrameworkUtils.getServiceId(o2.getProvider().getUrl()));
+                }
+            });
+            int[] ids = new int[withId.size()];
+            ServiceDispatcher[] byId = new ServiceDispatcher[withId.size()];
+            for (int i = 0; i < ids.length; i++) {
+                byId[i] = withId.get(i);
+                ids[i] = FrameworkUtils.getServiceId(byId[i].getProvider().getUrl());
+            }
+            return new RoutingTable(Collections.unmodifiableMap(byKey), ids, byId);
+        }
+    }
 }
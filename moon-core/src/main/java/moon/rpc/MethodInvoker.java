@@ -0,0 +1,56 @@
+package moon.rpc;
+
+import moon.exception.RpcFrameworkException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * 暴露服务时预先编译好的方法调用器，基于MethodHandle直接调用，
+ * 请求处理时不再反射查找Method，也没有Method.invoke的访问检查和异常包装
+ *
+ * @author Ricky Fung
+ */
+public class MethodInvoker {
+    private static final Object[] EMPTY_ARGS = new Object[0];
+
+    private final Method method;
+    private final Class<?>[] parameterTypes;
+    //(Object[])Object
+    private final MethodHandle handle;
+
+    public MethodInvoker(Object target, Method method) {
+        this.method = method;
+        this.parameterTypes = method.getParameterTypes();
+        try {
+            method.setAccessible(true);
+            this.handle = MethodHandles.lookup().unreflect(method)
+                    .bindTo(target)
+                    .asSpreader(Object[].class, parameterTypes.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new RpcFrameworkException("create method invoker failure: " + method, e);
+        }
+    }
+
+    /**
+     * 直接调用目标方法，业务方法抛出的异常原样抛出
+     */
+    public Object invoke(Object[] args) throws Throwable {
+        return handle.invokeExact(args != null ? args : EMPTY_ARGS);
+    }
+
+    public boolean matches(Class<?>[] types) {
+        if (types == null) {
+            return parameterTypes.length == 0;
+        }
+        return Arrays.equals(parameterTypes, types);
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+}
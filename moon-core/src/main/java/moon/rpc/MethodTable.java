@@ -0,0 +1,167 @@
+package moon.rpc;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 接口的方法表: 按方法签名排序后的下标即为方法id(从1开始，0表示未使用方法id)。
+ * consumer和provider由同一个接口确定性地推导出相同的方法表，
+ * 请求中只需要携带一个int，不再序列化方法名和Class[]参数类型。
+ * 双方接口不一致时方法id会错位，所以provider在url中发布方法表摘要，摘要一致时consumer才使用方法id。
+ *
+ * @author Ricky Fung
+ */
+public final class MethodTable {
+    private static final ConcurrentHashMap<Class<?>, MethodTable> TABLES = new ConcurrentHashMap<>();
+
+    private static final Class<?>[] EMPTY_TYPES = new Class<?>[0];
+
+    private final Method[] methods;
+    private final String[] signatures;
+    //getParameterTypes()每次都会复制数组，预先保存
+    private final Class<?>[][] parameterTypes;
+    //方法名 -> 重载方法的id
+    private final Map<String, int[]> idsByName;
+    private final String digest;
+
+    private MethodTable(Class<?> clz) {
+        Method[] methods = publicInstanceMethods(clz);
+        final String[] keys = new String[methods.length];
+        Integer[] order = new Integer[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            keys[i] = signature(methods[i]);
+            order[i] = i;
+        }
+        //getMethods()的顺序不确定，按签名排序
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return keys[o1].compareTo(keys[o2]);
+            }
+        });
+        this.methods = new Method[methods.length];
+        this.signatures = new String[methods.length];
+        this.parameterTypes = new Class<?>[methods.length][];
+        StringBuilder sb = new StringBuilder(64 * methods.length);
+        for (int i = 0; i < order.length; i++) {
+            this.methods[i] = methods[order[i]];
+            this.signatures[i] = keys[order[i]];
+            this.parameterTypes[i] = this.methods[i].getParameterTypes();
+            sb.append(keys[order[i]]).append(';');
+        }
+        this.digest = md5Hex(sb.toString());
+
+        Map<String, int[]> idsByName = new HashMap<>(methods.length * 2);
+        for (int i = 0; i < this.methods.length; i++) {
+            int[] ids = idsByName.get(this.methods[i].getName());
+            ids = ids == null ? new int[1] : Arrays.copyOf(ids, ids.length + 1);
+            ids[ids.length - 1] = i + 1;
+            idsByName.put(this.methods[i].getName(), ids);
+        }
+        this.idsByName = idsByName;
+    }
+
+    public static MethodTable of(Class<?> clz) {
+        MethodTable table = TABLES.get(clz);
+        if (table == null) {
+            table = new MethodTable(clz);
+            MethodTable old = TABLES.putIfAbsent(clz, table);
+            if (old != null) {
+                table = old;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return 方法id，找不到时返回0
+     */
+    public int getMethodId(String methodName, Class<?>[] parameterTypes) {
+        int[] ids = idsByName.get(methodName);
+        if (ids == null) {
+            return 0;
+        }
+        Class<?>[] types = parameterTypes != null ? parameterTypes : EMPTY_TYPES;
+        for (int id : ids) {
+            if (Arrays.equals(this.parameterTypes[id - 1], types)) {
+                return id;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return 方法id对应的方法，id非法时返回null
+     */
+    public Method getMethod(int methodId) {
+        return methodId > 0 && methodId <= methods.length ? methods[methodId - 1] : null;
+    }
+
+    /**
+     * @return 方法id对应的参数类型，不复制数组，调用方不能修改；id非法时返回null
+     */
+    public Class<?>[] getParameterTypes(int methodId) {
+        return methodId > 0 && methodId <= parameterTypes.length ? parameterTypes[methodId - 1] : null;
+    }
+
+    public int size() {
+        return methods.length;
+    }
+
+    public String getDigest() {
+        return digest;
+    }
+
+    public String getSignature(int methodId) {
+        return methodId > 0 && methodId <= signatures.length ? signatures[methodId - 1] : null;
+    }
+
+    /**
+     * 接口的static方法不能远程调用，不参与编号
+     */
+    private static Method[] publicInstanceMethods(Class<?> clz) {
+        Method[] all = clz.getMethods();
+        int n = 0;
+        for (Method method : all) {
+            if (!Modifier.isStatic(method.getModifiers())) {
+                all[n++] = method;
+            }
+        }
+        return n == all.length ? all : Arrays.copyOf(all, n);
+    }
+
+    private static String signature(Method method) {
+        StringBuilder sb = new StringBuilder(64);
+        sb.append(method.getReturnType().getName()).append(' ').append(method.getName()).append('(');
+        Class<?>[] types = method.getParameterTypes();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(types[i].getName());
+        }
+        return sb.append(')').toString();
+    }
+
+    private static String md5Hex(String text) {
+        try {
+            byte[] bytes = MessageDigest.getInstance("MD5").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(16);
+            //取前8个字节足够区分接口版本
+            for (int i = 0; i < 8; i++) {
+                sb.append(Character.forDigit((bytes[i] >> 4) & 0xF, 16)).append(Character.forDigit(bytes[i] & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package moon.rpc;
 
 import moon.common.URL;
+import moon.core.Request;
+import moon.core.Response;
+import moon.core.ResponseFuture;
 
 /**
  * reference to a service
@@ -16,4 +19,9 @@ public interface Reference<T> extends Caller<T> {
     int activeCount();
 
     URL getServiceUrl();
+
+    /**
+     * 异步调用，不阻塞调用线程
+     */
+    ResponseFuture<Response> callAsync(Request request);
 }
@@ -5,6 +5,7 @@ import moon.core.Response;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Ricky Fung
@@ -13,7 +14,12 @@ public class RpcContext {
     private Map<Object, Object> attribute = new HashMap<>();
     private Request request;
     private Response response;
-    private Long requestId;
+    private long requestId;
+    //调用截止时间(System.nanoTime)，hasDeadline为false时无效
+    private long deadline;
+    private boolean hasDeadline;
+    //consumer已取消该请求，由io线程设置
+    private volatile boolean cancelled;
 
     private static final ThreadLocal<RpcContext> localContext = new ThreadLocal<RpcContext>() {
         protected RpcContext initialValue() {
@@ -67,11 +73,66 @@ public class RpcContext {
         this.response = response;
     }
 
-    public Long getRequestId() {
+    public long getRequestId() {
         return requestId;
     }
 
-    void setRequestId(Long requestId) {
+    void setRequestId(long requestId) {
         this.requestId = requestId;
     }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * 当前调用的截止时间，以System.nanoTime()计；provider端由请求携带的剩余超时时间得到，
+     * 在此期间发起的远程调用超时时间不会超过截止时间
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * 设置截止时间，已有更早的截止时间时保留原来的
+     * @param deadline System.nanoTime()下的截止时间
+     */
+    public void setDeadline(long deadline) {
+        if (!hasDeadline || deadline - this.deadline < 0) {
+            this.deadline = deadline;
+            this.hasDeadline = true;
+        }
+    }
+
+    /**
+     * 从现在起timeout毫秒后截止
+     */
+    public void setTimeout(long timeout) {
+        setDeadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    /**
+     * @return 距截止时间剩余的毫秒数，已过期时小于等于0，没有截止时间时为Long.MAX_VALUE
+     */
+    public long getRemainingTime() {
+        if (!hasDeadline) {
+            return Long.MAX_VALUE;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && deadline - System.nanoTime() <= 0;
+    }
+
+    /**
+     * consumer已经超时或取消了当前请求，结果不会再返回，耗时的业务逻辑可以据此提前结束
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
 }
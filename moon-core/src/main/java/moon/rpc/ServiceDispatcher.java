@@ -0,0 +1,221 @@
+package moon.rpc;
+
+import moon.common.URL;
+import moon.common.URLParam;
+import moon.core.Request;
+import moon.util.Constants;
+import moon.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个暴露服务的分发配置: 服务级和方法级的分发方式，dedicated方式下服务(或方法)独立的线程池，
+ * 以及virtual方式下的虚拟线程executor。
+ * 暴露时根据provider的url构建，请求处理时只做数组/Map查找。
+ *
+ * @author Ricky Fung
+ */
+public class ServiceDispatcher {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Provider<?> provider;
+    private final DispatchMode mode;
+    //按方法id索引的分发方式和线程池，没有方法级配置时为null
+    private final DispatchMode[] methodModes;
+    private final Executor[] methodExecutors;
+    private final Map<String, DispatchMode> methodModesByName;
+    private final Map<String, Executor> methodExecutorsByName;
+    //服务级的线程池: dedicated方式的独立线程池或virtual方式的虚拟线程，没有用到时为null
+    private final Executor executor;
+    private final List<BulkheadExecutor> bulkheads;
+    //virtual方式的executor，每个请求一个虚拟线程
+    private final ExecutorService virtualExecutor;
+    //请求最长排队时间，0表示不限制
+    private final long maxQueueNanos;
+    //provider配置的超时时间，请求没有携带调用方超时时间时使用
+    private final long timeoutNanos;
+    //consumer取消请求时是否中断正在执行的业务线程
+    private final boolean cancelInterrupt;
+
+    public ServiceDispatcher(Provider<?> provider) {
+        this.provider = provider;
+        URL url = provider.getUrl();
+        String service = provider.getInterface().getSimpleName();
+        MethodTable table = MethodTable.of(provider.getInterface());
+
+        DispatchMode serviceMode = parse(url, URLParam.dispatch.getName(), DispatchMode.SHARED);
+        //服务或任意方法配置了virtual时创建虚拟线程executor，不支持时virtual回退到shared
+        boolean virtual = serviceMode == DispatchMode.VIRTUAL;
+        for (int i = 0; i < table.size() && !virtual; i++) {
+            virtual = DispatchMode.parse(url.getParameter(table.getMethod(i + 1).getName() + "."
+                    + URLParam.dispatch.getName()), null) == DispatchMode.VIRTUAL;
+        }
+        this.virtualExecutor = virtual ? newVirtualExecutor(service) : null;
+        DispatchMode virtualMode = virtualExecutor != null ? DispatchMode.VIRTUAL : DispatchMode.SHARED;
+        this.mode = serviceMode == DispatchMode.VIRTUAL ? virtualMode : serviceMode;
+
+        DispatchMode[] methodModes = new DispatchMode[table.size()];
+        Executor[] methodExecutors = new Executor[table.size()];
+        Map<String, DispatchMode> methodModesByName = new HashMap<>();
+        Map<String, Executor> methodExecutorsByName = new HashMap<>();
+        //方法独立的线程池，重载方法共用一个
+        Map<String, BulkheadExecutor> methodBulkheads = new HashMap<>();
+        List<BulkheadExecutor> bulkheads = new ArrayList<>();
+        boolean serviceBulkhead = mode == DispatchMode.DEDICATED;
+        for (int i = 0; i < methodModes.length; i++) {
+            Method method = table.getMethod(i + 1);
+            String name = method.getName();
+            BulkheadExecutor methodBulkhead = methodBulkheads.get(name);
+            if (methodBulkhead == null && url.getIntParameter(name + "." + URLParam.dispatchThreads.getName(), 0) > 0) {
+                methodBulkhead = newBulkhead(url, name + ".", service + "-" + name);
+                methodBulkheads.put(name, methodBulkhead);
+                bulkheads.add(methodBulkhead);
+            }
+            if (methodBulkhead != null) {
+                //配置了方法级线程数的方法总是在自己的线程池中执行
+                methodModes[i] = DispatchMode.DEDICATED;
+                methodExecutors[i] = methodBulkhead;
+                methodExecutorsByName.put(name, methodBulkhead);
+            } else {
+                methodModes[i] = parse(url, name + "." + URLParam.dispatch.getName(), mode);
+                if (methodModes[i] == DispatchMode.VIRTUAL) {
+                    methodModes[i] = virtualMode;
+                }
+                serviceBulkhead |= methodModes[i] == DispatchMode.DEDICATED;
+            }
+            if (methodModes[i] != mode) {
+                methodModesByName.put(name, methodModes[i]);
+            }
+        }
+        BulkheadExecutor bulkhead = serviceBulkhead ? newBulkhead(url, "", service) : null;
+        if (bulkhead != null) {
+            bulkheads.add(0, bulkhead);
+        }
+        for (int i = 0; i < methodExecutors.length; i++) {
+            if (methodExecutors[i] == null) {
+                methodExecutors[i] = methodModes[i] == DispatchMode.VIRTUAL ? virtualExecutor : bulkhead;
+            }
+        }
+        this.executor = mode == DispatchMode.VIRTUAL ? virtualExecutor : bulkhead;
+        boolean methodLevel = !methodModesByName.isEmpty() || !methodExecutorsByName.isEmpty();
+        this.methodModes = methodLevel ? methodModes : null;
+        this.methodExecutors = methodLevel ? methodExecutors : null;
+        this.methodModesByName = methodModesByName;
+        this.methodExecutorsByName = methodExecutorsByName;
+        this.bulkheads = Collections.unmodifiableList(bulkheads);
+        int maxQueueTime = url.getIntParameter(URLParam.maxQueueTime.getName(), URLParam.maxQueueTime.getIntValue());
+        int timeout = url.getIntParameter(URLParam.requestTimeout.getName(), URLParam.requestTimeout.getIntValue());
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxQueueTime, 0));
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(timeout, 0));
+        this.cancelInterrupt = url.getBooleanParameter(URLParam.cancelInterrupt.getName(), URLParam.cancelInterrupt.isBoolValue());
+        logger.info("ServiceDispatcher created, service:{}, dispatch:{}, methods:{}, bulkheads:{}", url.getPath(),
+                mode.getName(), methodModesByName, bulkheads);
+    }
+
+    private ExecutorService newVirtualExecutor(String service) {
+        if (!VirtualThreads.isSupported()) {
+            logger.warn("virtual threads are unsupported on java {}, dispatch {} with shared pool",
+                    System.getProperty("java.version"), service);
+            return null;
+        }
+        try {
+            return VirtualThreads.newExecutor(String.format("%s-%s-%s", Constants.FRAMEWORK_NAME, "vt", service));
+        } catch (RuntimeException e) {
+            logger.warn("create virtual thread executor failure, dispatch " + service + " with shared pool", e);
+            return null;
+        }
+    }
+
+    private static BulkheadExecutor newBulkhead(URL url, String prefix, String name) {
+        int threads = url.getIntParameter(prefix + URLParam.dispatchThreads.getName(), URLParam.dispatchThreads.getIntValue());
+        int coreThreads = url.getIntParameter(prefix + URLParam.dispatchCoreThreads.getName(), threads);
+        int queues = url.getIntParameter(prefix + URLParam.dispatchQueues.getName(), URLParam.dispatchQueues.getIntValue());
+        return new BulkheadExecutor(name, Math.min(coreThreads, threads), threads, queues);
+    }
+
+    private DispatchMode parse(URL url, String key, DispatchMode defaultMode) {
+        String value = url.getParameter(key);
+        DispatchMode mode = DispatchMode.parse(value, defaultMode);
+        if (value != null && !mode.getName().equalsIgnoreCase(value)) {
+            logger.warn("unknown dispatch:{} for {}, use {}", value, key, defaultMode.getName());
+        }
+        return mode;
+    }
+
+    public Provider<?> getProvider() {
+        return provider;
+    }
+
+    /**
+     * 请求的分发方式，有方法id时按下标查找
+     */
+    public DispatchMode getMode(Request request) {
+        if (methodModes == null) {
+            return mode;
+        }
+        int methodId = request.getMethodId();
+        if (methodId > 0) {
+            return methodId <= methodModes.length ? methodModes[methodId - 1] : mode;
+        }
+        DispatchMode methodMode = methodModesByName.get(request.getMethodName());
+        return methodMode != null ? methodMode : mode;
+    }
+
+    /**
+     * dedicated/virtual方式下请求使用的executor: 方法独立的线程池，否则为服务的线程池或虚拟线程
+     */
+    public Executor getExecutor(Request request) {
+        if (methodExecutors == null) {
+            return executor;
+        }
+        int methodId = request.getMethodId();
+        if (methodId > 0) {
+            return methodId <= methodExecutors.length ? methodExecutors[methodId - 1] : executor;
+        }
+        Executor methodExecutor = methodExecutorsByName.get(request.getMethodName());
+        return methodExecutor != null ? methodExecutor : executor;
+    }
+
+    /**
+     * 请求排队时间是否超过maxQueueTime或调用方的超时时间(请求没有携带时取provider的timeout)，
+     * 超过时调用方已经或即将超时，不再执行
+     * @param queueNanos 请求从收到到开始执行经过的时间
+     */
+    public boolean isQueueTimeout(Request request, long queueNanos) {
+        if (maxQueueNanos > 0 && queueNanos > maxQueueNanos) {
+            return true;
+        }
+        long timeout = request.getTimeout() > 0 ? TimeUnit.MILLISECONDS.toNanos(request.getTimeout()) : timeoutNanos;
+        return timeout > 0 && queueNanos > timeout;
+    }
+
+    public boolean isCancelInterrupt() {
+        return cancelInterrupt;
+    }
+
+    /**
+     * 服务及其方法的独立线程池，用于查看占用情况
+     */
+    public List<BulkheadExecutor> getBulkheads() {
+        return bulkheads;
+    }
+
+    public void destroy() {
+        for (BulkheadExecutor bulkhead : bulkheads) {
+            bulkhead.shutdown();
+        }
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdown();
+        }
+    }
+}
@@ -2,6 +2,8 @@ package moon.serialization;
 
 import moon.codec.Serializer;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * @author Ricky Fung
@@ -13,8 +15,18 @@ public class DefaultSerializer implements Serializer {
         return new byte[0];
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+
+    }
+
     @Override
     public <T> T deserialize(byte[] data, Class<T> type) throws IOException {
         return null;
     }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        return null;
+    }
 }
@@ -10,6 +10,8 @@ import com.google.common.cache.LoadingCache;
 import moon.codec.Serializer;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -30,7 +32,7 @@ public class ProtostuffSerializer implements Serializer {
     public byte[] serialize(Object msg) throws IOException {
         LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
         try {
-            Schema schema = getSchema(msg.getClass());
+            Schema<Object> schema = getSchema(msg.getClass());
             byte[] arr = ProtostuffIOUtil.toByteArray(msg, schema, buffer);
             return arr;
         } finally {
@@ -38,17 +40,40 @@ public class ProtostuffSerializer implements Serializer {
         }
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        LinkedBuffer buffer = LinkedBuffer.allocate(LinkedBuffer.DEFAULT_BUFFER_SIZE);
+        try {
+            Schema<Object> schema = getSchema(msg.getClass());
+            ProtostuffIOUtil.writeTo(out, msg, schema, buffer);
+        } finally {
+            buffer.clear();
+        }
+    }
+
     @Override
     public <T> T deserialize(byte[] buf, Class<T> type) throws IOException {
         Schema<T> schema = getSchema(type);
         T msg = schema.newMessage();
         ProtostuffIOUtil.mergeFrom(buf, msg, schema);
-        return (T) msg;
+        return msg;
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        Schema<T> schema = getSchema(type);
+        T msg = schema.newMessage();
+        ProtostuffIOUtil.mergeFrom(in, msg, schema);
+        return msg;
     }
 
-    private static Schema getSchema(Class<?> cls) throws IOException {
+    /**
+     * schema按消息的实际类型缓存，调用方决定泛型参数
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Schema<T> getSchema(Class<?> cls) throws IOException {
         try {
-            return schemas.get(cls);
+            return (Schema<T>) schemas.get(cls);
         } catch (ExecutionException e) {
             throw new IOException("create protostuff schema error", e);
         }
@@ -6,6 +6,11 @@ import io.netty.channel.ChannelFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * @author Ricky Fung
  */
@@ -13,15 +18,38 @@ public class ChannelWrapper {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
     private final ChannelFuture channelFuture;
+    //已发送但还未收到响应的请求数
+    private final AtomicInteger pending = new AtomicInteger();
+    //连接上最多的待响应请求数，0表示不限制
+    private final int maxPending;
+    //配置了背压时才要求连接可写，否则和以前一样写入netty的发送缓冲区
+    private final boolean writableRequired;
+    //等待待响应数减少或连接重新可写的线程，没有等待者时不加锁
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
 
     public ChannelWrapper(ChannelFuture channelFuture) {
+        this(channelFuture, 0, false);
+    }
+
+    public ChannelWrapper(ChannelFuture channelFuture, int maxPending, boolean writableRequired) {
         this.channelFuture = channelFuture;
+        this.maxPending = maxPending;
+        this.writableRequired = writableRequired;
     }
 
     public boolean isActive() {
         return (this.channelFuture.channel() != null && this.channelFuture.channel().isActive());
     }
 
+    /**
+     * 连接是否还在建立中
+     */
+    public boolean isConnecting() {
+        return !this.channelFuture.isDone();
+    }
+
     public boolean isWritable() {
         return this.channelFuture.channel().isWritable();
     }
@@ -34,6 +62,84 @@ public class ChannelWrapper {
         return channelFuture;
     }
 
+    public int incrementPending() {
+        return pending.incrementAndGet();
+    }
+
+    public int decrementPending() {
+        int count = pending.decrementAndGet();
+        signalAvailable();
+        return count;
+    }
+
+    /**
+     * 连接可写(配置了背压时)并且待响应数没有达到上限时占用一个待响应数
+     */
+    public boolean tryAcquire() {
+        if (writableRequired && !isWritable()) {
+            return false;
+        }
+        if (maxPending <= 0) {
+            pending.incrementAndGet();
+            return true;
+        }
+        for (;;) {
+            int count = pending.get();
+            if (count >= maxPending) {
+                return false;
+            }
+            if (pending.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 同tryAcquire，不满足时最多等待timeout毫秒，用ReentrantLock等待不会pin住虚拟线程
+     * @return 超时仍未占用成功返回false
+     */
+    public boolean acquire(long timeout) throws InterruptedException {
+        if (tryAcquire()) {
+            return true;
+        }
+        if (timeout <= 0) {
+            return false;
+        }
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        waiters.incrementAndGet();
+        lock.lock();
+        try {
+            while (!tryAcquire()) {
+                if (nanos <= 0 || !isActive()) {
+                    return false;
+                }
+                nanos = available.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * 待响应数减少、连接重新可写或关闭时唤醒等待的线程
+     */
+    public void signalAvailable() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                available.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
     public void close(){
         getChannel().close().addListener(new ChannelFutureListener() {
             @Override
@@ -0,0 +1,59 @@
+package moon.transport;
+
+import moon.util.Constants;
+
+/**
+ * 只有header、没有消息体的控制帧:
+ * 取消(consumer超时或调用方取消future后通知provider不再处理该请求)、心跳(探测连接是否存活)
+ *
+ * @author Ricky Fung
+ */
+final class ControlFrame {
+    static final ControlFrame HEARTBEAT = new ControlFrame(Constants.FLAG_HEARTBEAT, 0);
+
+    private final byte type;
+    private final long requestId;
+
+    private ControlFrame(byte type, long requestId) {
+        this.type = type;
+        this.requestId = requestId;
+    }
+
+    static ControlFrame cancel(long requestId) {
+        return new ControlFrame(Constants.FLAG_CANCEL, requestId);
+    }
+
+    /**
+     * @return 解码得到的控制帧，不是控制帧类型时返回null
+     */
+    static ControlFrame decode(byte type, long requestId) {
+        if (type == Constants.FLAG_CANCEL) {
+            return cancel(requestId);
+        }
+        if (type == Constants.FLAG_HEARTBEAT) {
+            return HEARTBEAT;
+        }
+        return null;
+    }
+
+    byte getType() {
+        return type;
+    }
+
+    long getRequestId() {
+        return requestId;
+    }
+
+    boolean isCancel() {
+        return type == Constants.FLAG_CANCEL;
+    }
+
+    boolean isHeartbeat() {
+        return type == Constants.FLAG_HEARTBEAT;
+    }
+
+    @Override
+    public String toString() {
+        return "ControlFrame[type=" + type + ", requestId=" + requestId + "]";
+    }
+}
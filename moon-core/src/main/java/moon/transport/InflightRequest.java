@@ -0,0 +1,108 @@
+package moon.transport;
+
+import moon.rpc.RpcContext;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 服务端一个待响应的请求，用于处理consumer的取消:
+ * 还在排队的从线程池队列中移除，正在执行的在RpcContext上标记(可选中断业务线程)，执行完后不再写响应
+ *
+ * @author Ricky Fung
+ */
+class InflightRequest {
+    private final boolean interruptOnCancel;
+    //提交到的线程池和任务，只在io线程中设置和读取
+    private Executor executor;
+    private Runnable task;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Thread thread;
+    private RpcContext context;
+    private boolean started;
+    private boolean cancelled;
+    private boolean interrupted;
+
+    InflightRequest(boolean interruptOnCancel) {
+        this.interruptOnCancel = interruptOnCancel;
+    }
+
+    void setTask(Executor executor, Runnable task) {
+        this.executor = executor;
+        this.task = task;
+    }
+
+    /**
+     * 业务线程开始执行前调用
+     * @return 已经被取消时返回false，不再执行
+     */
+    boolean start(RpcContext context) {
+        lock.lock();
+        try {
+            if (cancelled) {
+                return false;
+            }
+            this.started = true;
+            this.thread = Thread.currentThread();
+            this.context = context;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 业务线程执行完后调用，之后的取消不会再中断该线程
+     */
+    void finish() {
+        lock.lock();
+        try {
+            if (interrupted && thread == Thread.currentThread()) {
+                //清除取消时设置的中断状态，线程要回到线程池
+                Thread.interrupted();
+            }
+            this.thread = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取消请求，还在线程池队列中时尝试直接移除
+     * @return 任务已从队列中移除，不会再执行
+     */
+    boolean cancel() {
+        lock.lock();
+        try {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            if (started) {
+                if (context != null) {
+                    context.cancel();
+                }
+                if (interruptOnCancel && thread != null) {
+                    interrupted = true;
+                    thread.interrupt();
+                }
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        //ordered、virtual等方式没有可移除的队列，任务开始时检查到取消后跳过
+        return executor instanceof ThreadPoolExecutor && ((ThreadPoolExecutor) executor).remove(task);
+    }
+
+    boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -15,7 +15,7 @@ public interface NettyClient extends Endpoint {
     Response invokeSync(final Request request)
             throws InterruptedException, TransportException;
 
-    ResponseFuture invokeAsync(final Request request)
+    ResponseFuture<Response> invokeAsync(final Request request)
             throws InterruptedException, TransportException;
 
     void invokeOneway(final Request request)
@@ -1,29 +1,31 @@
 package moon.transport;
 
 import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
-import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 import moon.common.URL;
 import moon.common.URLParam;
 import moon.core.*;
 import moon.exception.RpcFrameworkException;
+import moon.exception.RpcOverloadException;
 import moon.exception.TransportException;
-import moon.util.Constants;
+import moon.util.ConcurrentLongHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * ${DESCRIPTION}
@@ -31,20 +33,36 @@ import java.util.concurrent.TimeUnit;
  * @author Ricky Fung
  */
 public class NettyClientImpl extends AbstractClient {
-    //指定EventLoopGroup 来处理客户端事件。由于我们使用 NIO 传输，所以用到了 NioEventLoopGroup 的实现
-    private EventLoopGroup loopGroup = new NioEventLoopGroup();
+    //所有client共享的EventLoopGroup和定时器
+    private final NettyClientResources resources;
+    private static final AttributeKey<ChannelWrapper> CHANNEL_WRAPPER = AttributeKey.valueOf("moon.channelWrapper");
+    public static final String CONNECTION_SELECTOR_LEAST_PENDING = "leastpending";
     //引导类
     private Bootstrap bootstrap = new Bootstrap();
 
-    private final ConcurrentHashMap<Long, ResponseFuture> responseFutureMap =
-            new ConcurrentHashMap<>(256);
+    //在途请求表，key为原始long类型的请求id，不装箱
+    private final ConcurrentLongHashMap<ResponseFuture<Response>> responseFutureMap =
+            new ConcurrentLongHashMap<>(256, 16);
 
-    private ScheduledExecutorService scheduledExecutorService;
     private int timeout;
+    //每个连接最多的待响应请求数，以及不满足时最多等待的时间
+    private final int maxPendingRequests;
+    private final int backpressureTimeout;
+    //没有配置待响应数上限和等待时间时不做背压，连接不可写时也照常写入
+    private final boolean backpressure;
+    //心跳间隔(ms)，取provider在服务url中声明的值，0表示不发送心跳
+    private final int heartbeat;
+    //provider是否支持取消帧
+    private final boolean cancelSupported;
 
     private volatile boolean initializing;
-
-    private volatile ChannelWrapper channelWrapper;
+    //到同一个provider的连接池，每个slot独立重连
+    private final AtomicReferenceArray<ChannelWrapper> channels;
+    //每个slot的重连状态
+    private final ReconnectBackoff[] backoffs;
+    //选择连接的策略: roundrobin/leastpending
+    private final boolean leastPending;
+    private final AtomicInteger index = new AtomicInteger();
 
     /**
      * @param url 目标service的url资源
@@ -54,17 +72,23 @@ public class NettyClientImpl extends AbstractClient {
 
         this.remoteAddress = new InetSocketAddress(url.getHost(), url.getPort());
         this.timeout = url.getIntParameter(URLParam.requestTimeout.getName(), URLParam.requestTimeout.getIntValue());
-
-        this.scheduledExecutorService = Executors.newScheduledThreadPool(5,
-                new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "future")));
-
-        this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
-            @Override
-            public void run() {
-                //定时清理超时Future
-                scanRpcFutureTable();
-            }
-        }, 0, 5000, TimeUnit.MILLISECONDS);
+        int connections = Math.max(1, url.getIntParameter(URLParam.connections.getName(), URLParam.connections.getIntValue()));
+        this.channels = new AtomicReferenceArray<>(connections);
+        long reconnectInterval = url.getIntParameter(URLParam.reconnectInterval.getName(), URLParam.reconnectInterval.getIntValue());
+        long maxReconnectInterval = url.getIntParameter(URLParam.maxReconnectInterval.getName(), URLParam.maxReconnectInterval.getIntValue());
+        this.backoffs = new ReconnectBackoff[connections];
+        for (int i = 0; i < connections; i++) {
+            this.backoffs[i] = new ReconnectBackoff(reconnectInterval, maxReconnectInterval);
+        }
+        this.leastPending = CONNECTION_SELECTOR_LEAST_PENDING.equalsIgnoreCase(
+                url.getParameter(URLParam.connectionSelector.getName(), URLParam.connectionSelector.getValue()));
+        this.resources = NettyClientResources.acquire(url);
+        this.maxPendingRequests = url.getIntParameter(URLParam.maxPendingRequests.getName(), URLParam.maxPendingRequests.getIntValue());
+        this.backpressureTimeout = url.getIntParameter(URLParam.backpressureTimeout.getName(), URLParam.backpressureTimeout.getIntValue());
+        this.backpressure = maxPendingRequests > 0 || backpressureTimeout > 0;
+        this.heartbeat = url.getIntParameter(URLParam.heartbeat.getName(), URLParam.heartbeat.getIntValue());
+        //由provider在服务url中声明
+        this.cancelSupported = url.getBooleanParameter(URLParam.cancelSupported.getName(), URLParam.cancelSupported.isBoolValue());
     }
 
     @Override
@@ -84,42 +108,85 @@ public class NettyClientImpl extends AbstractClient {
         // 最大响应包限制
         final int maxContentLength = url.getIntParameter(URLParam.maxContentLength.getName(),
                 URLParam.maxContentLength.getIntValue());
-        //指定EventLoopGroup 来处理客户端事件。由于我们使用 NIO 传输，所以用到了 NioEventLoopGroup 的实现
-        bootstrap.group(loopGroup)
-                //客户端只需要绑定一个通讯的nio channel
-                .channel(NioSocketChannel.class)
+        //指定共享的EventLoopGroup 来处理客户端事件
+        bootstrap.group(resources.getEventLoopGroup())
+                //客户端只需要绑定一个通讯的channel，nio或者epoll，和共享的EventLoopGroup一致
+                .channel(resources.getSocketChannelClass())
                 //通讯的TCP优化参数
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.SO_KEEPALIVE, true)
+                //provider宕机时连接尽快失败，重连在后台进行
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, url.getIntParameter(URLParam.connectTimeout.getName(), URLParam.connectTimeout.getIntValue()))
                 .option(ChannelOption.SO_RCVBUF, url.getIntParameter(URLParam.bufferSize.getName(), URLParam.bufferSize.getIntValue()))
                 .option(ChannelOption.SO_SNDBUF, url.getIntParameter(URLParam.bufferSize.getName(), URLParam.bufferSize.getIntValue()))
+                //编码直接写入池化的ByteBuf
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                //写缓冲超过高水位时连接不可写，不再发送新请求，避免provider变慢时无限堆积直接内存
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, NettyTransports.writeBufferWaterMark(url))
                 .handler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     public void initChannel(SocketChannel ch) throws Exception {
                         ch.pipeline().addLast(
                                 //编解码器
-                                new NettyDecoder(codec, url, maxContentLength, Constants.HEADER_SIZE, 4),
-                                new NettyEncoder(codec, url),
-                                //响应处理的handler
-                                new NettyClientHandler());
+                                new NettyDecoder(codec, url, maxContentLength),
+                                new NettyEncoder(codec, url));
+                        if (heartbeat > 0) {
+                            //写空闲时发送心跳，连续3个心跳周期没有读到数据认为连接已失效
+                            ch.pipeline().addLast(new IdleStateHandler(heartbeat * 3L, heartbeat, 0, TimeUnit.MILLISECONDS));
+                        }
+                        //响应处理的handler
+                        ch.pipeline().addLast(new NettyClientHandler());
+                        WriteBatcher.install(ch, url);
                     }
                 });
+        if (resources.isEpoll()) {
+            bootstrap.option(EpollChannelOption.EPOLL_MODE, NettyTransports.epollMode(url));
+        }
 
-        try {
-            ChannelFuture channelFuture = bootstrap.connect(this.remoteAddress).sync();
-            this.channelWrapper = new ChannelWrapper(channelFuture);
-        } catch (InterruptedException e) {
-            logger.error(String.format("NettyClient connect to address:%s failure", this.remoteAddress), e);
-            throw new RpcFrameworkException(String.format("NettyClient connect to address:%s failure"), e);
+        //连接池中的连接并发建立，只要有一个成功即可用，其余的在后台按退避间隔重连
+        for (int i = 0; i < channels.length(); i++) {
+            connect(i);
+        }
+        boolean connected = false;
+        for (int i = 0; i < channels.length(); i++) {
+            ChannelWrapper wrapper = channels.get(i);
+            if (wrapper == null) {
+                continue;
+            }
+            awaitUninterruptibly(wrapper.getChannelFuture());
+            if (wrapper.isActive()) {
+                connected = true;
+            } else {
+                logger.warn(String.format("NettyClient connect to address:%s failure, slot:%d", this.remoteAddress, i),
+                        wrapper.getChannelFuture().cause());
+            }
+        }
+        if (!connected) {
+            logger.error(String.format("NettyClient connect to address:%s failure", this.remoteAddress));
+            //停止后台重连并释放共享资源
+            close();
+            throw new RpcFrameworkException(String.format("NettyClient connect to address:%s failure", this.remoteAddress));
         }
 
         state = ChannelState.AVAILABLE;
         return true;
     }
 
+    /**
+     * 所有连接都已断开(心跳超时或provider关闭)时不可用，负载均衡会跳过，等待后台重连
+     */
     @Override
     public boolean isAvailable() {
-        return state.isAvailable();
+        if (!state.isAvailable()) {
+            return false;
+        }
+        for (int i = 0; i < channels.length(); i++) {
+            ChannelWrapper wrapper = channels.get(i);
+            if (wrapper != null && wrapper.isActive()) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -134,12 +201,16 @@ public class NettyClientImpl extends AbstractClient {
 
     @Override
     public Response invokeSync(final Request request) throws InterruptedException, TransportException {
-        Channel channel = getChannel();
+        final ChannelWrapper wrapper = getChannelWrapper();
+        Channel channel = wrapper.getChannel();
         if (channel != null && channel.isActive()) {
-            final ResponseFuture<Response> rpcFuture = new DefaultResponseFuture<>(timeout);
+            int timeout = getTimeout(request);
+            acquire(wrapper, request, timeout);
+            final ResponseFuture<Response> rpcFuture = new DefaultResponseFuture<>(timeout, resources.getCallbackExecutor());
             this.responseFutureMap.put(request.getRequestId(), rpcFuture);
+            scheduleTimeout(request.getRequestId(), rpcFuture, timeout, wrapper);
             //写数据
-            channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            WriteBatcher.write(channel, request).addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
 
@@ -148,8 +219,10 @@ public class NettyClientImpl extends AbstractClient {
 
                     } else {
                         logger.info("send failure, request id:{}", request.getRequestId());
-                        responseFutureMap.remove(request.getRequestId());
-                        rpcFuture.setFailure(future.cause());
+                        if (responseFutureMap.remove(request.getRequestId(), rpcFuture)) {
+                            wrapper.decrementPending();
+                            rpcFuture.setFailure(future.cause());
+                        }
                     }
                 }
             });
@@ -160,19 +233,28 @@ public class NettyClientImpl extends AbstractClient {
     }
 
     @Override
-    public ResponseFuture invokeAsync(final Request request) throws InterruptedException, TransportException {
-        Channel channel = getChannel();
+    public ResponseFuture<Response> invokeAsync(final Request request) throws InterruptedException, TransportException {
+        final ChannelWrapper wrapper = getChannelWrapper();
+        Channel channel = wrapper.getChannel();
         if (channel != null && channel.isActive()) {
-
-            final ResponseFuture<Response> rpcFuture = new DefaultResponseFuture<>(timeout);
+            int timeout = getTimeout(request);
+            acquire(wrapper, request, timeout);
+            final ResponseFuture<Response> rpcFuture = new DefaultResponseFuture<>(timeout, resources.getCallbackExecutor());
             this.responseFutureMap.put(request.getRequestId(), rpcFuture);
+            scheduleTimeout(request.getRequestId(), rpcFuture, timeout, wrapper);
             //写数据
-            channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            WriteBatcher.write(channel, request).addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
 
                     if (future.isSuccess()) {
                         logger.info("send success, request id:{}", request.getRequestId());
+                    } else {
+                        logger.info("send failure, request id:{}", request.getRequestId());
+                        if (responseFutureMap.remove(request.getRequestId(), rpcFuture)) {
+                            wrapper.decrementPending();
+                            rpcFuture.setFailure(future.cause());
+                        }
                     }
                 }
             });
@@ -184,10 +266,14 @@ public class NettyClientImpl extends AbstractClient {
 
     @Override
     public void invokeOneway(final Request request) throws InterruptedException, TransportException {
-        Channel channel = getChannel();
+        ChannelWrapper wrapper = getChannelWrapper();
+        Channel channel = wrapper.getChannel();
         if (channel != null && channel.isActive()) {
+            //单向请求没有响应，只检查连接是否可写，写入后立即归还
+            acquire(wrapper, request, backpressureTimeout);
+            wrapper.decrementPending();
             //写数据
-            channel.writeAndFlush(request).addListener(new ChannelFutureListener() {
+            WriteBatcher.write(channel, request).addListener(new ChannelFutureListener() {
                 @Override
                 public void operationComplete(ChannelFuture future) throws Exception {
 
@@ -217,10 +303,17 @@ public class NettyClientImpl extends AbstractClient {
         }
 
         try {
-            this.scheduledExecutorService.shutdown();
-            this.loopGroup.shutdownGracefully();
-
+            //先置为关闭，连接关闭时不再触发重连
             state = ChannelState.CLOSED;
+            for (int i = 0; i < channels.length(); i++) {
+                ChannelWrapper wrapper = channels.get(i);
+                if (wrapper != null) {
+                    wrapper.close();
+                }
+            }
+            //EventLoopGroup是共享的，这里只释放引用
+            this.resources.release();
+
         } catch (Exception e) {
             logger.error("NettyClient close Error: url=" + url.getUri(), e);
         }
@@ -238,15 +331,56 @@ public class NettyClientImpl extends AbstractClient {
             if (msg instanceof Response) {
                 DefaultResponse response = (DefaultResponse) msg;
                 //响应时，根据请求id去FutureMap中获取之前请求储存的Future
-                ResponseFuture<Response> rpcFuture = responseFutureMap.get(response.getRequestId());
+                //remove和超时、取消互斥，只有一方能拿到Future并减少这个连接上的待响应数
+                ResponseFuture<Response> rpcFuture = responseFutureMap.remove(response.getRequestId());
                 if (rpcFuture != null) {
-                    responseFutureMap.remove(response.getRequestId());
+                    ChannelWrapper wrapper = ctx.channel().attr(CHANNEL_WRAPPER).get();
+                    if (wrapper != null) {
+                        wrapper.decrementPending();
+                    }
                     rpcFuture.setResult(response);
                 }
 
+            } else if (msg instanceof ControlFrame) {
+                //心跳响应，读到数据即说明连接存活
+                logger.debug("client receive heartbeat from {}", ctx.channel().remoteAddress());
             }
         }
 
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent) {
+                IdleState idleState = ((IdleStateEvent) evt).state();
+                if (idleState == IdleState.WRITER_IDLE) {
+                    ctx.writeAndFlush(ControlFrame.HEARTBEAT);
+                } else if (idleState == IdleState.READER_IDLE) {
+                    logger.warn("NettyClient heartbeat timeout, close channel:{}", ctx.channel());
+                    ctx.close();
+                }
+                return;
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            //唤醒等待连接可写的调用方
+            ChannelWrapper wrapper = ctx.channel().attr(CHANNEL_WRAPPER).get();
+            if (wrapper != null) {
+                wrapper.signalAvailable();
+            }
+            super.channelWritabilityChanged(ctx);
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            ChannelWrapper wrapper = ctx.channel().attr(CHANNEL_WRAPPER).get();
+            if (wrapper != null) {
+                wrapper.signalAvailable();
+            }
+            super.channelInactive(ctx);
+        }
+
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
                 throws Exception {
@@ -255,43 +389,198 @@ public class NettyClientImpl extends AbstractClient {
         }
     }
 
-    private Channel getChannel() throws InterruptedException {
+    /**
+     * 从连接池中选择一个可用连接，不可用的连接由后台按退避间隔重连；
+     * 所有连接都不可用时快速失败，由集群策略选择其他provider，调用方线程不等待连接建立
+     */
+    private ChannelWrapper getChannelWrapper() throws TransportException {
+        int size = channels.length();
+        int start = (index.getAndIncrement() & Integer.MAX_VALUE) % size;
+        ChannelWrapper selected = null;
+        for (int i = 0; i < size; i++) {
+            ChannelWrapper wrapper = channels.get((start + i) % size);
+            if (wrapper == null || !wrapper.isActive()) {
+                continue;
+            }
+            if (!leastPending) {
+                return wrapper;
+            }
+            if (selected == null || wrapper.getPending() < selected.getPending()) {
+                selected = wrapper;
+            }
+        }
+        if (selected == null) {
+            throw new TransportException(String.format("no active connection to address:%s, state:%s, reconnecting",
+                    this.remoteAddress, backoffs[start].getState()));
+        }
+        return selected;
+    }
 
-        if (this.channelWrapper != null && this.channelWrapper.isActive()) {
-            return this.channelWrapper.getChannel();
+    /**
+     * netty的Future.await()基于synchronized/wait，在虚拟线程中调用会pin住载体线程，
+     * 这里用CountDownLatch等待连接完成
+     */
+    private static void await(ChannelFuture future) throws InterruptedException {
+        if (future.isDone()) {
+            return;
         }
+        final CountDownLatch latch = new CountDownLatch(1);
+        future.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                latch.countDown();
+            }
+        });
+        latch.await();
+    }
 
-        synchronized (this) {
-            // 发起异步连接操作
-            ChannelFuture channelFuture = bootstrap.connect(this.remoteAddress).sync();
-            this.channelWrapper = new ChannelWrapper(channelFuture);
+    private static void awaitUninterruptibly(ChannelFuture future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                await(future);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
         }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 等待delay毫秒后在后台重连指定slot，client关闭后什么都不做
+     */
+    private void scheduleReconnect(final int slot, long delay) {
+        if (state.isClosed()) {
+            return;
+        }
+        logger.info("NettyClient reconnect to address:{} after {}ms, slot:{}, attempts:{}", remoteAddress, delay, slot,
+                backoffs[slot].getAttempts());
+        this.resources.getTimer().newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout t) throws Exception {
+                connect(slot);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 建立指定slot的连接，同一个slot同时只会有一个连接在建立；
+     * 连接失败或断开后按退避间隔重连，连接成功后重置退避
+     */
+    private void connect(final int slot) {
+        final ReconnectBackoff backoff = backoffs[slot];
+        if (state.isClosed() || !backoff.connecting()) {
+            return;
+        }
+        ChannelFuture channelFuture;
+        try {
+            channelFuture = bootstrap.connect(this.remoteAddress);
+        } catch (RuntimeException e) {
+            //io线程已经关闭
+            logger.warn("NettyClient connect to address:" + this.remoteAddress + " error", e);
+            backoff.failed();
+            return;
+        }
+        ChannelWrapper wrapper = new ChannelWrapper(channelFuture, maxPendingRequests, backpressure);
+        channelFuture.channel().attr(CHANNEL_WRAPPER).set(wrapper);
+        //只有上一个连接已经失败或断开时才会重连，直接替换
+        ChannelWrapper previous = channels.getAndSet(slot, wrapper);
+        if (previous != null) {
+            previous.close();
+        }
+        channelFuture.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (!future.isSuccess()) {
+                    logger.warn("NettyClient connect to address:{} failure, slot:{}, cause:{}", remoteAddress, slot,
+                            future.cause() != null ? future.cause().getMessage() : null);
+                    scheduleReconnect(slot, backoff.failed());
+                    return;
+                }
+                if (backoff.getAttempts() > 0) {
+                    logger.info("NettyClient reconnected to address:{}, slot:{}", remoteAddress, slot);
+                }
+                backoff.connected();
+                future.channel().closeFuture().addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture f) throws Exception {
+                        //连接断开(provider关闭、心跳超时)后在后台重连，不等下一次调用
+                        scheduleReconnect(slot, backoff.failed());
+                    }
+                });
+            }
+        });
+    }
 
-        return this.channelWrapper.getChannel();
+    /**
+     * 请求携带了超时时间(已按调用链的截止时间收紧)时以请求为准
+     */
+    private int getTimeout(Request request) {
+        return request.getTimeout() > 0 ? request.getTimeout() : timeout;
     }
 
     /**
-     * 定时清理超时Future
-     **/
-    private void scanRpcFutureTable() {
-
-        long currentTime = System.currentTimeMillis();
-        logger.info("scan timeout RpcFuture, currentTime:{}", currentTime);
-
-        final List<ResponseFuture> timeoutFutureList = new ArrayList<>();
-        Iterator<Map.Entry<Long, ResponseFuture>> it = this.responseFutureMap.entrySet().iterator();
-        while (it.hasNext()) {
-            Map.Entry<Long, ResponseFuture> next = it.next();
-            ResponseFuture future = next.getValue();
-
-            if (future.isTimeout()) {  //超时
-                it.remove();
-                timeoutFutureList.add(future);
+     * 在共享时间轮上为请求注册超时任务，到期时O(1)移除Future并以超时失败结束；
+     * Future先完成时取消超时任务
+     */
+    private void scheduleTimeout(final long requestId, final ResponseFuture<Response> rpcFuture, final int timeout,
+                                 final ChannelWrapper wrapper) {
+        final Timeout timeoutTask = this.resources.getTimer().newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout t) throws Exception {
+                //已经收到响应或发送失败的请求已从map中移除，这里什么都不做
+                if (responseFutureMap.remove(requestId, rpcFuture)) {
+                    wrapper.decrementPending();
+                    rpcFuture.setFailure(new TransportException("request timeout, request id:" + requestId
+                            + ", timeout:" + timeout + "ms"));
+                    cancel(wrapper, requestId);
+                }
             }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        rpcFuture.addListener(new FutureListener<Response>() {
+            @Override
+            public void operationComplete(ResponseFuture<Response> future) throws Exception {
+                timeoutTask.cancel();
+                //没有收到响应就结束了(调用方取消或get()等待超时)，同样通知provider
+                if (responseFutureMap.remove(requestId, rpcFuture)) {
+                    wrapper.decrementPending();
+                    cancel(wrapper, requestId);
+                }
+            }
+        }, null);
+    }
+
+    /**
+     * 配置了背压时，连接不可写或待响应请求数达到上限时最多等待backpressureTimeout(不超过请求超时)，
+     * 仍不满足时快速失败，请求不会发送；在io线程或定时器线程上不等待，直接失败
+     */
+    private void acquire(ChannelWrapper wrapper, Request request, int timeout) throws InterruptedException {
+        long wait = timeout > 0 ? Math.min(backpressureTimeout, timeout) : backpressureTimeout;
+        if (wait > 0 && resources.inIoThread()) {
+            wait = 0;
+        }
+        if (!wrapper.acquire(wait)) {
+            throw new RpcOverloadException(String.format("channel is not writable or too many pending requests, pending:%d, max:%d, request id:%d, address:%s",
+                    wrapper.getPending(), maxPendingRequests, request.getRequestId(), this.remoteAddress));
         }
+    }
 
-        for (ResponseFuture future : timeoutFutureList) {
-            //释放资源
+    /**
+     * 通知provider不再处理该请求，排队中的请求不会执行，也不会再返回响应；
+     * 老版本的provider不认识取消帧，不发送
+     */
+    private void cancel(ChannelWrapper wrapper, long requestId) {
+        if (!cancelSupported) {
+            return;
+        }
+        Channel channel = wrapper.getChannel();
+        if (channel != null && channel.isActive()) {
+            WriteBatcher.write(channel, ControlFrame.cancel(requestId));
+            logger.info("send cancel, request id:{}", requestId);
         }
     }
 }
@@ -0,0 +1,156 @@
+package moon.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutor;
+import moon.common.URL;
+import moon.common.URLParam;
+import moon.util.Constants;
+import moon.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内NettyClient共享的资源: 一个EventLoopGroup、一个定时器和可选的回调线程池。
+ * 传输实现、io线程数、回调线程配置相同的client共享同一份，按引用计数管理，
+ * 第一个client创建，最后一个client关闭时释放。
+ *
+ * @author Ricky Fung
+ */
+public final class NettyClientResources {
+    private static final Logger logger = LoggerFactory.getLogger(NettyClientResources.class);
+
+    //配置 -> 共享资源，通常所有reference使用同一个protocol配置，只有一份
+    private static final Map<String, NettyClientResources> instances = new HashMap<>();
+
+    private final String key;
+    private final boolean epoll;
+    private final EventLoopGroup eventLoopGroup;
+    //所有请求的超时共用一个时间轮
+    private final Timer timer;
+    private volatile Thread timerThread;
+    //ResponseFuture回调线程池，为null时在完成future的线程中回调
+    private final ExecutorService callbackExecutor;
+
+    private int refCount;
+
+    private NettyClientResources(String key, boolean epoll, int ioThreads, int callbackThreads, boolean virtual) {
+        this.key = key;
+        this.epoll = epoll;
+        this.eventLoopGroup = NettyTransports.newEventLoopGroup(epoll, ioThreads,
+                new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "client")));
+        //tick为10ms，超时误差在一个tick以内
+        this.timer = new HashedWheelTimer(
+                new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "timer"), true) {
+                    @Override
+                    protected Thread newThread(Runnable r, String name) {
+                        Thread thread = super.newThread(r, name);
+                        timerThread = thread;
+                        return thread;
+                    }
+                },
+                10, TimeUnit.MILLISECONDS, 512);
+        if (virtual) {
+            //回调中可以放心地发起阻塞的同步调用
+            this.callbackExecutor = VirtualThreads.newExecutor(String.format("%s-%s", Constants.FRAMEWORK_NAME, "callback"));
+        } else {
+            this.callbackExecutor = callbackThreads > 0 ? Executors.newFixedThreadPool(callbackThreads,
+                    new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "callback"), true)) : null;
+        }
+        logger.info("NettyClientResources created, epoll:{}, ioThreads:{}, callbackThreads:{}, virtualThreads:{}",
+                epoll, ioThreads, callbackThreads, virtual);
+    }
+
+    /**
+     * 获取共享资源，引用计数+1，必须和{@link #release()}成对调用
+     * @param url 按其中的传输实现、io线程数、回调线程配置选择共享资源，不同配置的client不共享
+     */
+    public static synchronized NettyClientResources acquire(URL url) {
+        boolean epoll = NettyTransports.useEpoll(url);
+        //0表示由netty决定，默认cpu核数 * 2
+        int ioThreads = url.getIntParameter(URLParam.ioThreads.getName(), URLParam.ioThreads.getIntValue());
+        int callbackThreads = url.getIntParameter(URLParam.callbackThreads.getName(), URLParam.callbackThreads.getIntValue());
+        boolean virtual = url.getBooleanParameter(URLParam.virtualThreads.getName(), URLParam.virtualThreads.isBoolValue())
+                && VirtualThreads.isSupported();
+        String key = epoll + ":" + ioThreads + ":" + callbackThreads + ":" + virtual;
+        NettyClientResources resources = instances.get(key);
+        if (resources == null) {
+            if (!instances.isEmpty()) {
+                logger.warn("NettyClientResources config differs from existing shared resources, create another one: {}, existing: {}",
+                        key, instances.keySet());
+            }
+            resources = new NettyClientResources(key, epoll, ioThreads, callbackThreads, virtual);
+            instances.put(key, resources);
+        }
+        resources.refCount++;
+        return resources;
+    }
+
+    /**
+     * 引用计数-1，为0时关闭EventLoopGroup和定时器
+     */
+    public void release() {
+        synchronized (NettyClientResources.class) {
+            if (refCount <= 0) {
+                return;
+            }
+            if (--refCount > 0) {
+                return;
+            }
+            if (instances.get(key) == this) {
+                instances.remove(key);
+            }
+        }
+        logger.info("NettyClientResources released, shutdown event loop group and timer");
+        this.timer.stop();
+        if (this.callbackExecutor != null) {
+            this.callbackExecutor.shutdown();
+        }
+        this.eventLoopGroup.shutdownGracefully();
+    }
+
+    public boolean isEpoll() {
+        return epoll;
+    }
+
+    public EventLoopGroup getEventLoopGroup() {
+        return eventLoopGroup;
+    }
+
+    public Class<? extends SocketChannel> getSocketChannelClass() {
+        return NettyTransports.socketChannelClass(epoll);
+    }
+
+    public Timer getTimer() {
+        return timer;
+    }
+
+    /**
+     * 当前线程是否是io线程或定时器线程，在这些线程上(例如future的listener中)发起调用时不能阻塞等待
+     */
+    public boolean inIoThread() {
+        if (Thread.currentThread() == timerThread) {
+            return true;
+        }
+        for (EventExecutor executor : eventLoopGroup) {
+            if (executor.inEventLoop()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+}
@@ -3,6 +3,7 @@ package moon.transport;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.TooLongFrameException;
 import moon.codec.Codec;
 import moon.common.URL;
 import moon.core.DefaultResponse;
@@ -12,6 +13,8 @@ import moon.util.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteOrder;
+
 /**
  * ${DESCRIPTION}
  *
@@ -19,13 +22,20 @@ import org.slf4j.LoggerFactory;
  */
 public class NettyDecoder extends LengthFieldBasedFrameDecoder {
     private Logger logger = LoggerFactory.getLogger(getClass());
+    //header中数据长度字段的偏移量: short+byte+long
+    private static final int LENGTH_FIELD_OFFSET = Constants.HEADER_SIZE - 4;
 
     private int maxFrameLength;
+    //父类当前切分的帧的header，只在io线程中访问
+    private byte frameType;
+    private long frameRequestId;
+    private long frameDataLength;
     private Codec codec;
     private URL url;
 
-    public NettyDecoder(Codec codec, URL url, int maxFrameLength, int lengthFieldOffset, int lengthFieldLength) {
-        super(maxFrameLength, lengthFieldOffset, lengthFieldLength);
+    public NettyDecoder(Codec codec, URL url, int maxFrameLength) {
+        //由父类按header中的长度字段切分出完整的一帧(header+body)，超长的帧由父类丢弃
+        super(maxFrameLength > 0 ? maxFrameLength + Constants.HEADER_SIZE : Integer.MAX_VALUE, LENGTH_FIELD_OFFSET, 4);
         this.codec = codec;
         this.url = url;
         this.maxFrameLength = maxFrameLength;
@@ -37,50 +47,30 @@ public class NettyDecoder extends LengthFieldBasedFrameDecoder {
             return null;
         }
 
-        if (in.readableBytes() <= Constants.HEADER_SIZE) {
-            return null;
-        }
-
-        in.markReaderIndex();
-
-        short magicType = in.readShort();
-        if (magicType != Constants.NETTY_MAGIC_TYPE) {
-            in.resetReaderIndex();
-            throw new RpcFrameworkException("RpcDecoder transport header not support, type: " + magicType);
+        //父类丢弃超长帧时in的开头是上一帧剩余的数据而不是header，只检查父类切分出的完整帧
+        ByteBuf frame;
+        try {
+            frame = (ByteBuf) super.decode(ctx, in);
+        } catch (TooLongFrameException e) {
+            return tooLongFrame(ctx);
         }
-
-        byte messageType = in.readByte();
-        long requestId = in.readLong();
-        int dataLength = in.readInt();
-
-        // FIXME 如果dataLength过大，可能导致问题
-        if (in.readableBytes() < dataLength) {
-            in.resetReaderIndex();
+        if (frame == null) {
             return null;
         }
 
-        if (maxFrameLength > 0 && dataLength > maxFrameLength) {
-            logger.warn(
-                    "NettyDecoder transport data content length over of limit, size: {}  > {}. remote={} local={}",
-                    dataLength, maxFrameLength, ctx.channel().remoteAddress(), ctx.channel()
-                            .localAddress());
-            Exception e = new RpcFrameworkException("NettyDecoder transport data content length over of limit, size: "
-                    + dataLength + " > " + maxFrameLength);
+        //frame是累积缓冲区的retained slice，消息体直接从中反序列化，不再拷贝到byte[]
+        int readerIndex = frame.readerIndex();
+        byte messageType = frame.getByte(readerIndex + 2);
+        long requestId = frame.getLong(readerIndex + 3);
 
-            if (messageType == Constants.FLAG_REQUEST) {
-                Response response = buildExceptionResponse(requestId, e);
-                ctx.write(response);
-                throw e;
-            } else {
-                throw e;
-            }
+        ControlFrame controlFrame = ControlFrame.decode(messageType, requestId);
+        if (controlFrame != null) {
+            frame.release();
+            return controlFrame;
         }
-
-        byte[] data = new byte[dataLength];
-        in.readBytes(data);
-
         try {
-            return codec.decode(url, messageType, data);
+            frame.skipBytes(Constants.HEADER_SIZE);
+            return codec.decode(url, messageType, frame);
         } catch (Exception e) {
             if (messageType == Constants.FLAG_REQUEST) {
                 Response response = buildExceptionResponse(requestId, e);
@@ -90,7 +80,47 @@ public class NettyDecoder extends LengthFieldBasedFrameDecoder {
                 Response response = buildExceptionResponse(requestId, e);
                 return response;
             }
+        } finally {
+            frame.release();
+        }
+    }
+
+    /**
+     * 父类只在一帧的开始处读取长度字段，在这里检查header并记下这一帧的类型和请求id
+     */
+    @Override
+    protected long getUnadjustedFrameLength(ByteBuf buf, int offset, int length, ByteOrder order) {
+        int headerIndex = offset - LENGTH_FIELD_OFFSET;
+        short magicType = buf.getShort(headerIndex);
+        if (magicType != Constants.NETTY_MAGIC_TYPE) {
+            throw new RpcFrameworkException("RpcDecoder transport header not support, type: " + magicType);
+        }
+        this.frameType = buf.getByte(headerIndex + 2);
+        this.frameRequestId = buf.getLong(headerIndex + 3);
+        this.frameDataLength = super.getUnadjustedFrameLength(buf, offset, length, order);
+        return frameDataLength;
+    }
+
+    /**
+     * 超长的帧: 父类已经跳过或正在丢弃这一帧的数据，之后的帧照常解码，连接继续使用。
+     * 请求返回异常响应，响应以异常结束对应的调用
+     */
+    private Object tooLongFrame(ChannelHandlerContext ctx) {
+        logger.warn(
+                "NettyDecoder transport data content length over of limit, size: {}  > {}. remote={} local={}",
+                frameDataLength, maxFrameLength, ctx.channel().remoteAddress(), ctx.channel()
+                        .localAddress());
+        Exception e = new RpcFrameworkException("NettyDecoder transport data content length over of limit, size: "
+                + frameDataLength + " > " + maxFrameLength);
+
+        if (frameType == Constants.FLAG_REQUEST) {
+            ctx.writeAndFlush(buildExceptionResponse(frameRequestId, e));
+            return null;
+        }
+        if (frameType == Constants.FLAG_RESPONSE) {
+            return buildExceptionResponse(frameRequestId, e);
         }
+        return null;
     }
 
     private Response buildExceptionResponse(long requestId, Exception e) {
@@ -19,6 +19,9 @@ import org.slf4j.LoggerFactory;
  */
 public class NettyEncoder extends MessageToByteEncoder {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    //header中数据长度字段的偏移量: short+byte+long
+    private static final int LENGTH_FIELD_OFFSET = Constants.HEADER_SIZE - 4;
+
     private Codec codec;
     private URL url;
 
@@ -31,26 +34,34 @@ public class NettyEncoder extends MessageToByteEncoder {
     protected void encode(ChannelHandlerContext ctx, Object msg, ByteBuf out) throws Exception {
 
         long requestId = getRequestId(msg);
-        byte[] data = null;
 
+        int headerIndex = out.writerIndex();
+        out.writeShort(Constants.NETTY_MAGIC_TYPE);
+        out.writeByte(getType(msg));
+        out.writeLong(requestId);
+        //长度先占位，消息体写完后回填
+        out.writeInt(0);
+        if (msg instanceof ControlFrame) {
+            //控制帧没有消息体
+            return;
+        }
+
+        int bodyIndex = out.writerIndex();
+        //消息体直接序列化进(池化的)ByteBuf，不再经过中间byte[]
         if (msg instanceof Response) {
             try {
-                data = codec.encode(url, msg);
+                codec.encode(url, msg, out);
             } catch (Exception e) {
                 logger.error("RpcEncoder encode error, requestId=" + requestId, e);
+                out.writerIndex(bodyIndex);
                 Response response = buildExceptionResponse(requestId, e);
-                data = codec.encode(url, response);
+                codec.encode(url, response, out);
             }
         } else {
-            data = codec.encode(url, msg);
+            codec.encode(url, msg, out);
         }
 
-        out.writeShort(Constants.NETTY_MAGIC_TYPE);
-        out.writeByte(getType(msg));
-        out.writeLong(requestId);
-        out.writeInt(data.length);
-
-        out.writeBytes(data);
+        out.setInt(headerIndex + LENGTH_FIELD_OFFSET, out.writerIndex() - bodyIndex);
     }
 
     private byte getType(Object message) {
@@ -58,6 +69,8 @@ public class NettyEncoder extends MessageToByteEncoder {
             return Constants.FLAG_REQUEST;
         } else if (message instanceof Response) {
             return Constants.FLAG_RESPONSE;
+        } else if (message instanceof ControlFrame) {
+            return ((ControlFrame) message).getType();
         } else {
             return Constants.FLAG_OTHER;
         }
@@ -68,6 +81,8 @@ public class NettyEncoder extends MessageToByteEncoder {
             return ((Request) message).getRequestId();
         } else if (message instanceof Response) {
             return ((Response) message).getRequestId();
+        } else if (message instanceof ControlFrame) {
+            return ((ControlFrame) message).getRequestId();
         } else {
             return 0;
         }
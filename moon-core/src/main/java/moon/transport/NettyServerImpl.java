@@ -1,30 +1,48 @@
 package moon.transport;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.handler.logging.LoggingHandler;
+import io.netty.util.AttributeKey;
 import io.netty.util.concurrent.DefaultThreadFactory;
 import moon.common.URL;
 import moon.common.URLParam;
 import moon.core.DefaultRequest;
 import moon.core.DefaultResponse;
+import moon.exception.RpcBizException;
 import moon.exception.RpcFrameworkException;
+import moon.exception.RpcOverloadException;
+import moon.exception.RpcShutdownException;
+import moon.rpc.DispatchMode;
 import moon.rpc.MessageRouter;
 import moon.rpc.RpcContext;
+import moon.rpc.ServiceDispatcher;
+import moon.util.ConcurrentLongHashMap;
 import moon.util.Constants;
+import moon.util.VirtualThreads;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * ${DESCRIPTION}
@@ -33,29 +51,52 @@ import java.util.concurrent.TimeUnit;
  */
 public class NettyServerImpl extends AbstractServer {
     //只处理连接的group线程
-    private EventLoopGroup bossGroup = new NioEventLoopGroup(1);
+    private EventLoopGroup bossGroup;
     //处理work业务的group线程 默认实际 cpu核数 * 2  最佳线程数=CPU核数*[1+(I/O耗时/CPU耗时)]
-    private EventLoopGroup workerGroup = new NioEventLoopGroup();
+    private EventLoopGroup workerGroup;
+    //是否使用linux native epoll
+    private final boolean epoll;
     //引导类
     private ServerBootstrap serverBootstrap = new ServerBootstrap();
-    //业务处理线程池
-    private ThreadPoolExecutor pool;
+    //业务处理线程池，开启virtualThreads时为每个请求一个虚拟线程
+    private ExecutorService pool;
 
     private MessageRouter router;
 
     private volatile boolean initializing = false;
-    private static Map<String,ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+    private static Map<String,ExecutorService> executors = new ConcurrentHashMap<>();
+    //ordered分发方式下每个连接的串行执行器
+    private static final AttributeKey<OrderedExecutor> ORDERED_EXECUTOR = AttributeKey.valueOf("moon.orderedExecutor");
+    //每个连接上待响应的请求，用于处理取消
+    private static final AttributeKey<ConcurrentLongHashMap<InflightRequest>> INFLIGHT_REQUESTS = AttributeKey.valueOf("moon.inflightRequests");
+    //已接收还没有处理完的请求数(排队、执行中以及等待异步结果)，关闭时等待其归零
+    private final ProcessingCounter processing = new ProcessingCounter();
     public NettyServerImpl(URL url, MessageRouter router) {
         super(url);
 
         this.localAddress = new InetSocketAddress(url.getPort());
         this.router = router;
+        this.epoll = NettyTransports.useEpoll(url);
+        //0表示由netty决定，默认cpu核数 * 2
+        this.bossGroup = NettyTransports.newEventLoopGroup(epoll, 1,
+                new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "boss")));
+        this.workerGroup = NettyTransports.newEventLoopGroup(epoll,
+                url.getIntParameter(URLParam.ioThreads.getName(), URLParam.ioThreads.getIntValue()),
+                new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "worker")));
         //业务线程资源全局唯一，默认200
-        ThreadPoolExecutor threadPoolExecutor = executors.get(url.getHost());
+        ExecutorService threadPoolExecutor = executors.get(url.getHost());
         if(null == threadPoolExecutor){
+            if (url.getBooleanParameter(URLParam.virtualThreads.getName(), URLParam.virtualThreads.isBoolValue())) {
+                if (VirtualThreads.isSupported()) {
+                    pool = VirtualThreads.newExecutor(String.format("%s-%s", Constants.FRAMEWORK_NAME, "biz"));
+                    executors.put(url.getHost(), pool);
+                    return;
+                }
+                logger.warn("virtual threads are unsupported on java {}, use platform thread pool", System.getProperty("java.version"));
+            }
             pool = new ThreadPoolExecutor(url.getIntParameter(URLParam.minWorkerThread.getName(), URLParam.minWorkerThread.getIntValue()),
                     url.getIntParameter(URLParam.maxWorkerThread.getName(), URLParam.maxWorkerThread.getIntValue()),
-                    120, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    120, TimeUnit.SECONDS, newWorkerQueue(url.getIntParameter(URLParam.workerQueues.getName(), URLParam.workerQueues.getIntValue())),
                     //自定义线程名
                     new DefaultThreadFactory(String.format("%s-%s", Constants.FRAMEWORK_NAME, "biz")));
             executors.put(url.getHost(),pool);
@@ -64,6 +105,13 @@ public class NettyServerImpl extends AbstractServer {
         pool = threadPoolExecutor;
     }
 
+    /**
+     * 有界队列，排满后线程池拒绝，过载时快速失败而不是无限堆积
+     */
+    private static BlockingQueue<Runnable> newWorkerQueue(int queues) {
+        return queues > 0 ? new LinkedBlockingQueue<Runnable>(queues) : new SynchronousQueue<Runnable>();
+    }
+
     @Override
     public synchronized boolean open() {
         if (initializing) {
@@ -79,16 +127,21 @@ public class NettyServerImpl extends AbstractServer {
         // 最大响应包限制
         final int maxContentLength = url.getIntParameter(URLParam.maxContentLength.getName(),
                 URLParam.maxContentLength.getIntValue());
+        final int heartbeat = url.getIntParameter(URLParam.heartbeat.getName(), URLParam.heartbeat.getIntValue());
 
         this.serverBootstrap.group(bossGroup, workerGroup)
-                //用到NIO，绑定通道NioServerSocketChannel
-                .channel(NioServerSocketChannel.class)
+                //nio或者epoll的ServerSocketChannel
+                .channel(NettyTransports.serverSocketChannelClass(epoll))
                 // 设置一个线程队列等待连接的个数
                 .option(ChannelOption.SO_BACKLOG, 128)
                 //通讯的TCP优化参数
                 .childOption(ChannelOption.TCP_NODELAY, true)
                 .childOption(ChannelOption.SO_RCVBUF, url.getIntParameter(URLParam.bufferSize.getName(), URLParam.bufferSize.getIntValue()))
                 .childOption(ChannelOption.SO_SNDBUF, url.getIntParameter(URLParam.bufferSize.getName(), URLParam.bufferSize.getIntValue()))
+                //编码直接写入池化的ByteBuf
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                //响应写缓冲的高低水位，写合并在连接不可写时立即flush
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, NettyTransports.writeBufferWaterMark(url))
                 .handler(new LoggingHandler(LogLevel.INFO))
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
@@ -96,11 +149,23 @@ public class NettyServerImpl extends AbstractServer {
                             throws IOException {
 
                         ch.pipeline().addLast(
-                                new NettyDecoder(codec, url, maxContentLength, Constants.HEADER_SIZE, 4), //
-                                new NettyEncoder(codec, url), //
-                                new NettyServerHandler());
+                                new NettyDecoder(codec, url, maxContentLength), //
+                                new NettyEncoder(codec, url));
+                        if (heartbeat > 0) {
+                            //3个心跳周期没有读到数据(请求或心跳)的连接认为已失效
+                            ch.pipeline().addLast(new IdleStateHandler(heartbeat * 3L, 0, 0, TimeUnit.MILLISECONDS));
+                        }
+                        ch.pipeline().addLast(new NettyServerHandler());
+                        WriteBatcher.install(ch, url);
                     }
                 });
+        if (epoll) {
+            //epoll特有参数: 触发模式、SO_REUSEPORT
+            this.serverBootstrap.childOption(EpollChannelOption.EPOLL_MODE, NettyTransports.epollMode(url));
+            if (NettyTransports.reusePort(url)) {
+                this.serverBootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+            }
+        }
 
         try {
             ChannelFuture channelFuture = this.serverBootstrap.bind(this.localAddress).sync();
@@ -141,38 +206,87 @@ public class NettyServerImpl extends AbstractServer {
 
     @Override
     public void close() {
-        close(0);
+        close(url.getIntParameter(URLParam.shutdownTimeout.getName(), URLParam.shutdownTimeout.getIntValue()));
     }
 
+    /**
+     * 先拒绝新请求，最多等待timeout毫秒让在途请求处理完并写出响应，再关闭io线程和业务线程池；
+     * 等待期间不持有监视器锁
+     */
     @Override
-    public synchronized void close(int timeout) {
+    public void close(int timeout) {
+        synchronized (this) {
+            if (state.isClosed()) {
+                logger.info("NettyServer close fail: already close, url={}", url.getUri());
+                return;
+            }
+            state = ChannelState.UNAVAILABLE;
+        }
 
-        if (state.isClosed()) {
-            logger.info("NettyServer close fail: already close, url={}", url.getUri());
-            return;
+        awaitProcessing(timeout);
+
+        synchronized (this) {
+            if (state.isClosed()) {
+                return;
+            }
+            try {
+                this.bossGroup.shutdownGracefully();
+                this.workerGroup.shutdownGracefully();
+                this.pool.shutdown();
+
+                state = ChannelState.CLOSED;
+            } catch (Exception e) {
+                logger.error("NettyServer close Error: url=" + url.getUri(), e);
+            }
         }
+    }
 
+    private void awaitProcessing(int timeout) {
         try {
-            this.bossGroup.shutdownGracefully();
-            this.workerGroup.shutdownGracefully();
-            this.pool.shutdown();
-
-            state = ChannelState.CLOSED;
-        } catch (Exception e) {
-            logger.error("NettyServer close Error: url=" + url.getUri(), e);
+            if (!processing.await(timeout)) {
+                logger.warn("NettyServer close with {} requests still processing, url={}", processing.get(), url.getUri());
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
         }
+        logger.info("NettyServer all requests processed, close url={}", url.getUri());
     }
 
-    class NettyServerHandler extends SimpleChannelInboundHandler<DefaultRequest> {
+    class NettyServerHandler extends SimpleChannelInboundHandler<Object> {
 
         @Override
-        protected void channelRead0(ChannelHandlerContext context, DefaultRequest request) throws Exception {
-
+        protected void channelRead0(ChannelHandlerContext context, Object msg) throws Exception {
+            if (msg instanceof ControlFrame) {
+                ControlFrame frame = (ControlFrame) msg;
+                if (frame.isHeartbeat()) {
+                    //心跳原样返回
+                    context.writeAndFlush(ControlFrame.HEARTBEAT);
+                } else if (frame.isCancel()) {
+                    cancelRequest(context.channel(), frame.getRequestId());
+                }
+                return;
+            }
+            if (!(msg instanceof DefaultRequest)) {
+                return;
+            }
+            DefaultRequest request = (DefaultRequest) msg;
             logger.info("Rpc server receive request id:{}", request.getRequestId());
             //处理请求
             processRpcRequest(context, request);
         }
 
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent && ((IdleStateEvent) evt).state() == IdleState.READER_IDLE) {
+                logger.warn("NettyServer close idle channel:{}", ctx.channel());
+                ctx.close();
+                return;
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+
         @Override
         public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
             logger.error("NettyServerHandler exceptionCaught: remote=" + ctx.channel().remoteAddress()
@@ -182,44 +296,208 @@ public class NettyServerImpl extends AbstractServer {
     }
 
     /**
-     * 处理客户端请求
+     * 处理客户端请求，按服务/方法配置的分发方式选择执行线程
      **/
     private void processRpcRequest(final ChannelHandlerContext context, final DefaultRequest request) {
         final long processStartTime = System.currentTimeMillis();
+        //先计数再检查状态，关闭时要么拒绝这个请求，要么等待它处理完
+        processing.increment();
+        if (!state.isAvailable()) {
+            processing.decrement();
+            reject(context, request, new RpcShutdownException("server is shutting down, address:" + this.localAddress), processStartTime);
+            return;
+        }
+        //入队时间，执行前据此检查排队时间
+        final long enqueueTime = System.nanoTime();
+        final ServiceDispatcher dispatcher = this.router.route(request);
+        //服务不存在时直接在io线程中返回错误响应
+        DispatchMode mode = dispatcher != null ? dispatcher.getMode(request) : DispatchMode.DIRECT;
+        //单向请求consumer不会取消
+        final InflightRequest inflight = dispatcher != null && request.getType() != Constants.REQUEST_ONEWAY
+                ? new InflightRequest(dispatcher.isCancelInterrupt()) : null;
+        if (inflight != null) {
+            getInflightRequests(context.channel()).put(request.getRequestId(), inflight);
+        }
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                boolean async = false;
+                try {
+                    //转成上下文，截止时间从收到请求时算起，在此期间发起的远程调用继承该截止时间
+                    RpcContext rpcContext = RpcContext.init(request);
+                    if (request.getTimeout() > 0) {
+                        rpcContext.setDeadline(enqueueTime + TimeUnit.MILLISECONDS.toNanos(request.getTimeout()));
+                    }
+                    if (inflight != null && !inflight.start(rpcContext)) {
+                        //排队期间已被取消
+                        removeInflightRequest(context.channel(), request.getRequestId());
+                        logger.info("skip cancelled request:{}", request.getRequestId());
+                        return;
+                    }
+                    long queueTime = System.nanoTime() - enqueueTime;
+                    if (dispatcher != null && dispatcher.isQueueTimeout(request, queueTime)) {
+                        //排队过久的请求调用方已经放弃，不再执行
+                        reject(context, request, "request queued " + TimeUnit.NANOSECONDS.toMillis(queueTime)
+                                + "ms, exceed max queue time or deadline", processStartTime);
+                        return;
+                    }
+                    async = processRpcRequest(context, request, dispatcher, processStartTime);
+                } finally {
+                    if (inflight != null) {
+                        inflight.finish();
+                    }
+                    RpcContext.destroy();
+                    //异步结果完成写出响应后再减少
+                    if (!async) {
+                        processing.decrement();
+                    }
+                }
+
+            }
+        };
+        if (mode == DispatchMode.DIRECT) {
+            task.run();
+            return;
+        }
         try {
-            //上面声明的业务线程池
-            this.pool.execute(new Runnable() {
-                @Override
-                public void run() {
+            Executor executor = getExecutor(mode, dispatcher, request, context.channel());
+            if (inflight != null) {
+                inflight.setTask(executor, task);
+            }
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            processing.decrement();
+            reject(context, request, "process thread pool is full, reject: " + e.getMessage(), processStartTime);
+        }
+
+    }
+
+    /**
+     * 快速返回过载响应，请求没有执行；单向请求直接丢弃
+     */
+    private void reject(ChannelHandlerContext context, DefaultRequest request, String message, long processStartTime) {
+        reject(context, request, new RpcOverloadException(message), processStartTime);
+    }
+
+    private void reject(ChannelHandlerContext context, DefaultRequest request, RpcOverloadException exception, long processStartTime) {
+        if (request.getType() == Constants.REQUEST_ONEWAY) {
+            logger.warn("discard oneway request:{}, {}", request.getRequestId(), exception.getMessage());
+            return;
+        }
+        logger.warn("reject request:{}, {}", request.getRequestId(), exception.getMessage());
+        removeInflightRequest(context.channel(), request.getRequestId());
+        DefaultResponse response = new DefaultResponse();
+        response.setRequestId(request.getRequestId());
+        response.setException(exception);
+        response.setProcessTime(System.currentTimeMillis() - processStartTime);
+        WriteBatcher.write(context.channel(), response);
+    }
 
+    private Executor getExecutor(DispatchMode mode, ServiceDispatcher dispatcher, DefaultRequest request, Channel channel) {
+        switch (mode) {
+            case DEDICATED:
+            case VIRTUAL:
+                return dispatcher.getExecutor(request);
+            case ORDERED:
+                //只在连接所属的io线程中调用，不存在并发创建
+                OrderedExecutor executor = channel.attr(ORDERED_EXECUTOR).get();
+                if (executor == null) {
+                    //每个连接等待执行的请求数不超过共享线程池的排队数
+                    executor = new OrderedExecutor(this.pool, url.getIntParameter(URLParam.workerQueues.getName(),
+                            URLParam.workerQueues.getIntValue()));
+                    channel.attr(ORDERED_EXECUTOR).set(executor);
+                }
+                return executor;
+            default:
+                //上面声明的业务线程池
+                return this.pool;
+        }
+    }
+
+    /**
+     * @return 服务方法返回了CompletionStage，响应在其完成后异步写出
+     */
+    private boolean processRpcRequest(final ChannelHandlerContext context, final DefaultRequest request,
+                                   ServiceDispatcher dispatcher, final long processStartTime) {
+        //反射调用实现方法
+        final DefaultResponse response = (DefaultResponse) this.router.handle(request, dispatcher);
+        //单向调用provider不会构建响应
+        if (response == null || request.getType() == Constants.REQUEST_ONEWAY) {
+            removeInflightRequest(context.channel(), request.getRequestId());
+            logger.info("Rpc server process oneway request:{} end...", request.getRequestId());
+            return false;
+        }
+        //服务方法返回CompletionStage时，在其完成后再写响应，不占用业务线程等待
+        if (response.getResult() instanceof CompletionStage) {
+            CompletionStage<?> stage = (CompletionStage<?>) response.getResult();
+            stage.whenComplete(new BiConsumer<Object, Throwable>() {
+                @Override
+                public void accept(Object result, Throwable throwable) {
+                    if (throwable != null) {
+                        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                                ? throwable.getCause() : throwable;
+                        response.setResult(null);
+                        response.setException(new RpcBizException("invoke failure", cause));
+                    } else {
+                        response.setResult(result);
+                    }
                     try {
-                        //转成上下文
-                        RpcContext.init(request);
-                        processRpcRequest(context, request, processStartTime);
+                        writeResponse(context, request, response, processStartTime);
                     } finally {
-                        RpcContext.destroy();
+                        processing.decrement();
                     }
-
                 }
             });
-        } catch (RejectedExecutionException e) {
-            DefaultResponse response = new DefaultResponse();
-            response.setRequestId(request.getRequestId());
-            response.setException(new RpcFrameworkException("process thread pool is full, reject"));
-            response.setProcessTime(System.currentTimeMillis() - processStartTime);
-            context.channel().write(response);
+            return true;
         }
-
+        writeResponse(context, request, response, processStartTime);
+        return false;
     }
 
-    private void processRpcRequest(ChannelHandlerContext context, DefaultRequest request, long processStartTime) {
-        //反射调用实现方法
-        DefaultResponse response = (DefaultResponse) this.router.handle(request);
-        response.setProcessTime(System.currentTimeMillis() - processStartTime);
-        //非单向调用
-        if (request.getType() != Constants.REQUEST_ONEWAY) {
-            context.writeAndFlush(response);
+    private void writeResponse(ChannelHandlerContext context, DefaultRequest request, DefaultResponse response, long processStartTime) {
+        InflightRequest inflight = removeInflightRequest(context.channel(), request.getRequestId());
+        if (inflight != null && inflight.isCancelled()) {
+            //consumer已经不再等待，不再序列化和发送响应
+            logger.info("Rpc server skip response of cancelled request:{}", request.getRequestId());
+            return;
         }
+        response.setProcessTime(System.currentTimeMillis() - processStartTime);
+        WriteBatcher.write(context.channel(), response);
         logger.info("Rpc server process request:{} end...", request.getRequestId());
     }
+
+    /**
+     * 只在连接所属的io线程中创建，不存在并发创建
+     */
+    private static ConcurrentLongHashMap<InflightRequest> getInflightRequests(Channel channel) {
+        ConcurrentLongHashMap<InflightRequest> requests = channel.attr(INFLIGHT_REQUESTS).get();
+        if (requests == null) {
+            requests = new ConcurrentLongHashMap<>(64, 4);
+            channel.attr(INFLIGHT_REQUESTS).set(requests);
+        }
+        return requests;
+    }
+
+    private static InflightRequest removeInflightRequest(Channel channel, long requestId) {
+        ConcurrentLongHashMap<InflightRequest> requests = channel.attr(INFLIGHT_REQUESTS).get();
+        return requests != null ? requests.remove(requestId) : null;
+    }
+
+    /**
+     * consumer取消请求: 排队中的从队列移除，执行中的标记取消，完成后都不再写响应
+     */
+    private void cancelRequest(Channel channel, long requestId) {
+        ConcurrentLongHashMap<InflightRequest> requests = channel.attr(INFLIGHT_REQUESTS).get();
+        InflightRequest inflight = requests != null ? requests.get(requestId) : null;
+        if (inflight == null) {
+            //已经处理完
+            return;
+        }
+        if (inflight.cancel()) {
+            //任务不会再执行，由这里移除
+            requests.remove(requestId, inflight);
+            processing.decrement();
+        }
+        logger.info("Rpc server cancel request:{}", requestId);
+    }
 }
@@ -0,0 +1,87 @@
+package moon.transport;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import moon.common.URL;
+import moon.common.URLParam;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 根据url参数选择netty传输实现: nio 或 linux native epoll
+ *
+ * @author Ricky Fung
+ */
+public final class NettyTransports {
+    private static final Logger logger = LoggerFactory.getLogger(NettyTransports.class);
+
+    public static final String TRANSPORT_NIO = "nio";
+    public static final String TRANSPORT_EPOLL = "epoll";
+
+    public static final String EPOLL_MODE_EDGE = "edge";
+    public static final String EPOLL_MODE_LEVEL = "level";
+
+    private NettyTransports() {
+    }
+
+    /**
+     * 配置了epoll并且当前平台可以加载native库时才使用epoll，否则回退到nio
+     */
+    public static boolean useEpoll(URL url) {
+        String transport = url.getParameter(URLParam.transport.getName(), URLParam.transport.getValue());
+        if (!TRANSPORT_EPOLL.equalsIgnoreCase(transport)) {
+            return false;
+        }
+        if (!Epoll.isAvailable()) {
+            logger.warn("native epoll transport is unavailable, fallback to nio. url={}", url.getUri(),
+                    Epoll.unavailabilityCause());
+            return false;
+        }
+        return true;
+    }
+
+    public static EventLoopGroup newEventLoopGroup(boolean epoll, int threads, ThreadFactory threadFactory) {
+        if (epoll) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+        return new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    public static Class<? extends SocketChannel> socketChannelClass(boolean epoll) {
+        return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+    }
+
+    public static Class<? extends ServerChannel> serverSocketChannelClass(boolean epoll) {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+
+    public static EpollMode epollMode(URL url) {
+        String mode = url.getParameter(URLParam.epollMode.getName(), URLParam.epollMode.getValue());
+        return EPOLL_MODE_LEVEL.equalsIgnoreCase(mode) ? EpollMode.LEVEL_TRIGGERED : EpollMode.EDGE_TRIGGERED;
+    }
+
+    public static boolean reusePort(URL url) {
+        return url.getBooleanParameter(URLParam.reusePort.getName(), URLParam.reusePort.isBoolValue());
+    }
+
+    /**
+     * 写缓冲的高低水位，低水位不大于高水位
+     */
+    public static WriteBufferWaterMark writeBufferWaterMark(URL url) {
+        int high = url.getIntParameter(URLParam.writeBufferHighWaterMark.getName(), URLParam.writeBufferHighWaterMark.getIntValue());
+        int low = url.getIntParameter(URLParam.writeBufferLowWaterMark.getName(), URLParam.writeBufferLowWaterMark.getIntValue());
+        return new WriteBufferWaterMark(Math.min(low, high), high);
+    }
+}
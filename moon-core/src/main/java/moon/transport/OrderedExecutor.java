@@ -0,0 +1,77 @@
+package moon.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 在共享线程池上按提交顺序串行执行任务，每个连接一个，
+ * 同一时刻最多占用线程池的一个线程；等待执行的任务数有上限，排满后拒绝，和共享线程池一样快速返回过载响应
+ *
+ * @author Ricky Fung
+ */
+class OrderedExecutor implements Executor, Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(OrderedExecutor.class);
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    //还没有开始执行的任务数及其上限
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+
+    /**
+     * @param maxQueued 等待执行的任务数上限，至少为1
+     */
+    OrderedExecutor(Executor executor, int maxQueued) {
+        this.executor = executor;
+        this.maxQueued = Math.max(maxQueued, 1);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("ordered queue is full, max:" + maxQueued);
+        }
+        tasks.offer(task);
+        if (running.compareAndSet(false, true)) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                //线程池拒绝时撤回任务，由调用方处理
+                if (tasks.remove(task)) {
+                    queued.decrementAndGet();
+                }
+                running.set(false);
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        for (;;) {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                queued.decrementAndGet();
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    logger.error("ordered task execute failure", e);
+                }
+            }
+            running.set(false);
+            //释放后又有任务进来并且没有被其他线程接手，继续在当前线程执行
+            if (tasks.isEmpty() || !running.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+}
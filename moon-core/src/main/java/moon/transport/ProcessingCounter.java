@@ -0,0 +1,62 @@
+package moon.transport;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * server已接收还没有处理完的请求数(排队、执行中以及等待异步结果)，关闭时等待其归零；
+ * 等待和唤醒用自己的锁，不占用server的监视器锁
+ *
+ * @author Ricky Fung
+ */
+class ProcessingCounter {
+    private final AtomicInteger count = new AtomicInteger();
+    //开始等待后，最后一个请求处理完时唤醒等待的线程
+    private volatile boolean draining;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition drained = lock.newCondition();
+
+    int increment() {
+        return count.incrementAndGet();
+    }
+
+    int decrement() {
+        int value = count.decrementAndGet();
+        if (value == 0 && draining) {
+            lock.lock();
+            try {
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    int get() {
+        return count.get();
+    }
+
+    /**
+     * 最多等待timeout毫秒直到计数归零
+     * @return 超时仍有请求没有处理完返回false
+     */
+    boolean await(long timeout) throws InterruptedException {
+        draining = true;
+        long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(timeout, 0));
+        lock.lock();
+        try {
+            while (count.get() > 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = drained.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package moon.transport;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 连接池中一个连接的重连状态: DISCONNECTED -> CONNECTING -> CONNECTED/BACKOFF，
+ * BACKOFF到期后由后台定时任务重新进入CONNECTING，调用方线程不参与重连。
+ * 连续失败时重连间隔从initialDelay开始指数增长到maxDelay，取[间隔/2, 间隔]之间的随机值，
+ * 避免provider重启后所有consumer在同一时刻重连。
+ *
+ * @author Ricky Fung
+ */
+final class ReconnectBackoff {
+
+    enum State {
+        /** 还没有连接过 **/
+        DISCONNECTED,
+        /** 连接建立中 **/
+        CONNECTING,
+        /** 连接可用 **/
+        CONNECTED,
+        /** 连接失败或断开，等待重连 **/
+        BACKOFF
+    }
+
+    private final long initialDelay;
+    private final long maxDelay;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private State state = State.DISCONNECTED;
+    //连续失败的次数，连接成功后清零
+    private int attempts;
+
+    ReconnectBackoff(long initialDelay, long maxDelay) {
+        this.initialDelay = Math.max(initialDelay, 1);
+        this.maxDelay = Math.max(maxDelay, this.initialDelay);
+    }
+
+    /**
+     * 开始建立连接，已经在建立中或已连接时返回false，保证同时只有一个连接在建立
+     */
+    boolean connecting() {
+        lock.lock();
+        try {
+            if (state == State.CONNECTING || state == State.CONNECTED) {
+                return false;
+            }
+            state = State.CONNECTING;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void connected() {
+        lock.lock();
+        try {
+            state = State.CONNECTED;
+            attempts = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 连接失败或断开
+     * @return 下一次重连前等待的时间(ms)
+     */
+    long failed() {
+        long delay;
+        lock.lock();
+        try {
+            state = State.BACKOFF;
+            //左移超过maxDelay后不再增长，避免溢出
+            delay = attempts < 30 ? Math.min(maxDelay, initialDelay << attempts) : maxDelay;
+            attempts++;
+        } finally {
+            lock.unlock();
+        }
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+
+    State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getAttempts() {
+        lock.lock();
+        try {
+            return attempts;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package moon.transport;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.util.AttributeKey;
+import moon.common.URL;
+import moon.common.URLParam;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一个连接上的写合并: 消息只write不flush，在io线程中累积，
+ * 本轮任务执行完(或等待flushDelay)后统一flush一次，累积的消息数或字节数达到上限时立即flush。
+ * 高并发、多请求复用连接时把每个消息一次系统调用变成一批消息一次。
+ * 计数和调度只在io线程中进行，不需要同步。
+ *
+ * @author Ricky Fung
+ */
+final class WriteBatcher implements Runnable {
+    private static final AttributeKey<WriteBatcher> WRITE_BATCHER = AttributeKey.valueOf("moon.writeBatcher");
+
+    private final Channel channel;
+    private final EventLoop eventLoop;
+    private final int maxFrames;
+    private final long maxBytes;
+    //等待更多消息的最长时间(微秒)，0表示本轮任务执行完就flush
+    private final long flushDelay;
+
+    //以下字段只在io线程中访问
+    private int pendingFrames;
+    private boolean flushScheduled;
+
+    private WriteBatcher(Channel channel, int maxFrames, long maxBytes, long flushDelay) {
+        this.channel = channel;
+        this.eventLoop = channel.eventLoop();
+        this.maxFrames = maxFrames;
+        this.maxBytes = maxBytes;
+        this.flushDelay = flushDelay;
+    }
+
+    /**
+     * 按url的writeBatchSize配置为连接开启写合并，在连接初始化时调用
+     */
+    static void install(Channel channel, URL url) {
+        int maxFrames = url.getIntParameter(URLParam.writeBatchSize.getName(), URLParam.writeBatchSize.getIntValue());
+        if (maxFrames <= 1) {
+            return;
+        }
+        long maxBytes = url.getIntParameter(URLParam.writeBatchBytes.getName(), URLParam.writeBatchBytes.getIntValue());
+        long flushDelay = url.getIntParameter(URLParam.writeBatchDelay.getName(), URLParam.writeBatchDelay.getIntValue());
+        channel.attr(WRITE_BATCHER).set(new WriteBatcher(channel, maxFrames, maxBytes, Math.max(flushDelay, 0)));
+    }
+
+    /**
+     * 写出消息，连接开启了写合并时延迟flush，否则直接writeAndFlush
+     */
+    static ChannelFuture write(Channel channel, Object msg) {
+        WriteBatcher batcher = channel.attr(WRITE_BATCHER).get();
+        if (batcher == null) {
+            return channel.writeAndFlush(msg);
+        }
+        return batcher.write(msg);
+    }
+
+    private ChannelFuture write(final Object msg) {
+        final ChannelPromise promise = channel.newPromise();
+        if (eventLoop.inEventLoop()) {
+            doWrite(msg, promise);
+            return promise;
+        }
+        try {
+            eventLoop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    doWrite(msg, promise);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //io线程已经关闭
+            promise.setFailure(e);
+        }
+        return promise;
+    }
+
+    private void doWrite(Object msg, ChannelPromise promise) {
+        channel.write(msg, promise);
+        pendingFrames++;
+        if (pendingFrames >= maxFrames || pendingBytes() >= maxBytes || !channel.isWritable()) {
+            flush();
+            return;
+        }
+        if (!flushScheduled) {
+            flushScheduled = true;
+            //排在已提交的写任务之后，同一轮提交的消息一起flush
+            if (flushDelay > 0) {
+                eventLoop.schedule(this, flushDelay, TimeUnit.MICROSECONDS);
+            } else {
+                eventLoop.execute(this);
+            }
+        }
+    }
+
+    private long pendingBytes() {
+        ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+        return buffer != null ? buffer.totalPendingWriteBytes() : 0;
+    }
+
+    private void flush() {
+        if (pendingFrames > 0) {
+            pendingFrames = 0;
+            channel.flush();
+        }
+    }
+
+    @Override
+    public void run() {
+        flushScheduled = false;
+        flush();
+    }
+}
@@ -0,0 +1,242 @@
+package moon.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * key为long原始类型的并发Map，分段加锁，段内使用开放寻址(线性探测)。
+ * 不装箱key，也不为每个entry分配节点对象，用于在途请求表这类高频put/remove的场景。
+ * 不支持null value。
+ *
+ * @author Ricky Fung
+ */
+public class ConcurrentLongHashMap<V> {
+
+    private static final Object TOMBSTONE = new Object();
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final Segment<V>[] segments;
+    private final int segmentMask;
+
+    public ConcurrentLongHashMap() {
+        this(256, 16);
+    }
+
+    public ConcurrentLongHashMap(int expectedItems, int concurrencyLevel) {
+        int segmentCount = tableSizeFor(Math.max(1, concurrencyLevel));
+        int perSegment = tableSizeFor((int) (Math.max(expectedItems / segmentCount, 2) / LOAD_FACTOR) + 1);
+        this.segments = newSegments(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(perSegment);
+        }
+        this.segmentMask = segmentCount - 1;
+    }
+
+    public V get(long key) {
+        long h = hash(key);
+        return segmentFor(h).get(key, (int) h);
+    }
+
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        long h = hash(key);
+        return segmentFor(h).put(key, value, (int) h);
+    }
+
+    public V remove(long key) {
+        long h = hash(key);
+        return segmentFor(h).remove(key, null, (int) h);
+    }
+
+    /**
+     * 只有当前value是expected(同一对象)时才移除
+     */
+    public boolean remove(long key, Object expected) {
+        if (expected == null) {
+            return false;
+        }
+        long h = hash(key);
+        return segmentFor(h).remove(key, expected, (int) h) != null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> Segment<V>[] newSegments(int size) {
+        return (Segment<V>[]) new Segment<?>[size];
+    }
+
+    private Segment<V> segmentFor(long h) {
+        return segments[(int) (h >>> 32) & segmentMask];
+    }
+
+    /** 64位混淆，连续的请求id也能均匀分布 **/
+    private static long hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * 用ReentrantLock而不是synchronized，虚拟线程在竞争时可以卸载而不会pin住载体线程
+     */
+    private static final class Segment<V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] keys;
+        private Object[] values;
+        private int size;
+        //size + 墓碑数，决定何时rehash
+        private int used;
+
+        Segment(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key, int hash) {
+            lock.lock();
+            try {
+                int mask = values.length - 1;
+                int idx = hash & mask;
+                while (true) {
+                    Object v = values[idx];
+                    if (v == null) {
+                        return null;
+                    }
+                    if (v != TOMBSTONE && keys[idx] == key) {
+                        return (V) v;
+                    }
+                    idx = (idx + 1) & mask;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, V value, int hash) {
+            lock.lock();
+            try {
+                int mask = values.length - 1;
+                int idx = hash & mask;
+                int firstTombstone = -1;
+                while (true) {
+                    Object v = values[idx];
+                    if (v == null) {
+                        break;
+                    }
+                    if (v == TOMBSTONE) {
+                        if (firstTombstone < 0) {
+                            firstTombstone = idx;
+                        }
+                    } else if (keys[idx] == key) {
+                        values[idx] = value;
+                        return (V) v;
+                    }
+                    idx = (idx + 1) & mask;
+                }
+
+                if (firstTombstone >= 0) {
+                    idx = firstTombstone;
+                } else {
+                    used++;
+                }
+                keys[idx] = key;
+                values[idx] = value;
+                size++;
+
+                if (used > values.length * LOAD_FACTOR) {
+                    //墓碑较多时原大小重建即可
+                    rehash(size * 2 > values.length * LOAD_FACTOR ? values.length << 1 : values.length);
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, Object expected, int hash) {
+            lock.lock();
+            try {
+                int mask = values.length - 1;
+                int idx = hash & mask;
+                while (true) {
+                    Object v = values[idx];
+                    if (v == null) {
+                        return null;
+                    }
+                    if (v != TOMBSTONE && keys[idx] == key) {
+                        if (expected != null && expected != v) {
+                            return null;
+                        }
+                        //下一个槽为空时不需要墓碑
+                        if (values[(idx + 1) & mask] == null) {
+                            values[idx] = null;
+                            used--;
+                        } else {
+                            values[idx] = TOMBSTONE;
+                        }
+                        size--;
+                        return (V) v;
+                    }
+                    idx = (idx + 1) & mask;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return size;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldValues.length; i++) {
+                Object v = oldValues[i];
+                if (v != null && v != TOMBSTONE) {
+                    int idx = (int) hash(oldKeys[i]) & mask;
+                    while (values[idx] != null) {
+                        idx = (idx + 1) & mask;
+                    }
+                    keys[idx] = oldKeys[i];
+                    values[idx] = v;
+                }
+            }
+            used = size;
+        }
+    }
+}
@@ -21,6 +21,10 @@ public class Constants {
 
     public static final byte FLAG_REQUEST = 0x01;
     public static final byte FLAG_RESPONSE = 0x03;
+    //取消请求，只有header，requestId为要取消的请求
+    public static final byte FLAG_CANCEL = 0x05;
+    //心跳，只有header，consumer发出后provider原样返回
+    public static final byte FLAG_HEARTBEAT = 0x07;
     public static final byte FLAG_OTHER = (byte) 0xFF;
 
 
@@ -6,6 +6,10 @@ import moon.config.ProtocolConfig;
 import moon.config.RegistryConfig;
 import moon.core.Request;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 /**
  * ${DESCRIPTION}
  *
@@ -47,12 +51,35 @@ public class FrameworkUtils {
     }
 
     public static String getServiceKey(Request request) {
-        String version = getValueFromRequest(request, URLParam.version.name(), URLParam.version.getValue());
-        String group = getValueFromRequest(request, URLParam.group.name(), URLParam.group.getValue());
+        String version = getValueFromRequest(request, URLParam.version.getName(), URLParam.version.getValue());
+        String group = getValueFromRequest(request, URLParam.group.getName(), URLParam.group.getValue());
 
         return getServiceKey(group, request.getInterfaceName(), version);
     }
 
+    /**
+     * provider url中发布的服务id，没有时返回0
+     */
+    public static int getServiceId(URL url) {
+        return url.getIntParameter(URLParam.serviceId.getName(), URLParam.serviceId.getIntValue());
+    }
+
+    /**
+     * 由serviceKey确定性地推导出非0的服务id，同一端口上的冲突在暴露时检查
+     */
+    public static int newServiceId(String group, String interfaceName, String version) {
+        String serviceKey = getServiceKey(group, interfaceName, version);
+        int h = 0;
+        try {
+            byte[] bytes = MessageDigest.getInstance("MD5").digest(serviceKey.getBytes(StandardCharsets.UTF_8));
+            h = ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+        } catch (NoSuchAlgorithmException e) {
+            h = serviceKey.hashCode();
+        }
+        h &= Integer.MAX_VALUE;
+        return h != 0 ? h : 1;
+    }
+
     public static String getValueFromRequest(Request request, String key, String defaultValue) {
         String value = defaultValue;
         if (request.getAttachments() != null && request.getAttachments().containsKey(key)) {
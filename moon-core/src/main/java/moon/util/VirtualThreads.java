@@ -0,0 +1,71 @@
+package moon.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * JDK 21+的虚拟线程，通过反射访问，框架本身仍然以JDK 8编译运行；
+ * 低版本JDK上{@link #isSupported()}返回false。
+ * 排查业务代码中的pinning可以加上 -Djdk.tracePinnedThreads=short
+ *
+ * @author Ricky Fung
+ */
+public final class VirtualThreads {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreads.class);
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (Throwable e) {
+            ofVirtual = null;
+            logger.debug("virtual threads are unsupported on java {}", System.getProperty("java.version"));
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * 每个任务一个虚拟线程的executor
+     * @param name 线程名前缀
+     * @throws UnsupportedOperationException JDK不支持虚拟线程
+     */
+    public static ExecutorService newExecutor(String name) {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("virtual threads require java 21+, current: " + System.getProperty("java.version"));
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+        } catch (Exception e) {
+            throw new IllegalStateException("create virtual thread executor failure", e);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package moon.cluster.ha;
+
+import moon.cluster.LoadBalance;
+import moon.common.URL;
+import moon.common.URLParam;
+import moon.core.DefaultRequest;
+import moon.core.DefaultResponse;
+import moon.core.DefaultResponseFuture;
+import moon.core.Request;
+import moon.core.Response;
+import moon.core.ResponseFuture;
+import moon.exception.RpcBizException;
+import moon.exception.RpcFrameworkException;
+import moon.exception.RpcShutdownException;
+import moon.rpc.AbstractReference;
+import moon.rpc.Reference;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 正在下线的provider拒绝的请求等以正常响应返回的框架异常由failover发往其他provider
+ *
+ * @author Ricky Fung
+ */
+public class FailoverHaStrategyTest {
+
+    @Test
+    public void testCallRetryOnShutdown() {
+        StubReference draining = new StubReference("10.0.0.1", 1, true);
+        StubReference alive = new StubReference("10.0.0.2", 1, false);
+
+        Response response = new FailoverHaStrategy<Object>().call(newRequest(), new UntriedFirstLoadBalance(draining, alive));
+
+        Assert.assertNull(response.getException());
+        Assert.assertEquals("10.0.0.2", response.getResult());
+        Assert.assertEquals(1, draining.calls);
+        Assert.assertEquals(1, alive.calls);
+    }
+
+    @Test
+    public void testCallAsyncRetryOnShutdown() throws Exception {
+        StubReference draining = new StubReference("10.0.0.1", 1, true);
+        StubReference alive = new StubReference("10.0.0.2", 1, false);
+
+        Response response = new FailoverHaStrategy<Object>().callAsync(newRequest(), new UntriedFirstLoadBalance(draining, alive)).get();
+
+        Assert.assertNull(response.getException());
+        Assert.assertEquals("10.0.0.2", response.getResult());
+        Assert.assertEquals(1, draining.calls);
+        Assert.assertEquals(1, alive.calls);
+    }
+
+    @Test
+    public void testRejectedResponseReturnedWithoutRetries() {
+        StubReference draining = new StubReference("10.0.0.1", 0, true);
+        StubReference alive = new StubReference("10.0.0.2", 0, false);
+
+        Response response = new FailoverHaStrategy<Object>().call(newRequest(), new UntriedFirstLoadBalance(draining, alive));
+
+        Assert.assertTrue(response.getException() instanceof RpcShutdownException);
+        Assert.assertEquals(0, alive.calls);
+    }
+
+    @Test
+    public void testCallRetryOnFrameworkException() {
+        StubReference missing = new StubReference("10.0.0.1", 1, new RpcFrameworkException("provider not exist"));
+        StubReference alive = new StubReference("10.0.0.2", 1, null);
+
+        Response response = new FailoverHaStrategy<Object>().call(newRequest(), new UntriedFirstLoadBalance(missing, alive));
+
+        Assert.assertEquals("10.0.0.2", response.getResult());
+        Assert.assertEquals(1, missing.calls);
+    }
+
+    @Test
+    public void testCallAsyncRetryOnFrameworkException() throws Exception {
+        StubReference missing = new StubReference("10.0.0.1", 1, new RpcFrameworkException("provider not exist"));
+        StubReference alive = new StubReference("10.0.0.2", 1, null);
+
+        Response response = new FailoverHaStrategy<Object>().callAsync(newRequest(), new UntriedFirstLoadBalance(missing, alive)).get();
+
+        Assert.assertEquals("10.0.0.2", response.getResult());
+        Assert.assertEquals(1, missing.calls);
+        //重试不在完成上一次调用的线程上发起
+        Assert.assertTrue(alive.thread, alive.thread.startsWith("moon-failover"));
+    }
+
+    @Test
+    public void testBizExceptionNotRetried() throws Exception {
+        StubReference failed = new StubReference("10.0.0.1", 1, new RpcBizException("invoke failure"));
+        StubReference alive = new StubReference("10.0.0.2", 1, null);
+
+        Response response = new FailoverHaStrategy<Object>().call(newRequest(), new UntriedFirstLoadBalance(failed, alive));
+        Assert.assertTrue(response.getException() instanceof RpcBizException);
+        Assert.assertEquals(0, alive.calls);
+
+        failed = new StubReference("10.0.0.1", 1, new RpcBizException("invoke failure"));
+        response = new FailoverHaStrategy<Object>().callAsync(newRequest(), new UntriedFirstLoadBalance(failed, alive)).get();
+        Assert.assertTrue(response.getException() instanceof RpcBizException);
+        Assert.assertEquals(0, alive.calls);
+    }
+
+    private static Request newRequest() {
+        DefaultRequest request = new DefaultRequest();
+        request.setRequestId(1L);
+        request.setInterfaceName(Object.class.getName());
+        request.setMethodName("toString");
+        return request;
+    }
+
+    /**
+     * 按顺序选择还没有调用过的reference，都调用过时选择最后一个
+     */
+    private static class UntriedFirstLoadBalance implements LoadBalance<Object> {
+        private final List<StubReference> references = new ArrayList<>();
+
+        UntriedFirstLoadBalance(StubReference... references) {
+            this.references.addAll(Arrays.asList(references));
+        }
+
+        @Override
+        public void setReferences(List<Reference<Object>> references) {
+            this.references.clear();
+            for (Reference<Object> reference : references) {
+                this.references.add((StubReference) reference);
+            }
+        }
+
+        @Override
+        public Reference<Object> select(Request request) {
+            for (StubReference reference : references) {
+                if (reference.calls == 0) {
+                    return reference;
+                }
+            }
+            return references.get(references.size() - 1);
+        }
+    }
+
+    /**
+     * draining为true时像下线中的provider一样，以正常响应返回RpcShutdownException
+     */
+    private static class StubReference extends AbstractReference<Object> {
+        private final Exception exception;
+        private volatile int calls;
+        private volatile String thread;
+
+        StubReference(String host, int retries, boolean draining) {
+            this(host, retries, draining ? new RpcShutdownException("provider is shutting down") : null);
+        }
+
+        StubReference(String host, int retries, Exception exception) {
+            super(Object.class, newUrl(host, retries), newUrl(host, retries));
+            this.exception = exception;
+        }
+
+        private static URL newUrl(String host, int retries) {
+            URL url = new URL("moon", host, 9000, Object.class.getName());
+            url.addParameter(URLParam.retries.getName(), String.valueOf(retries));
+            return url;
+        }
+
+        @Override
+        protected Response doCall(Request request) {
+            calls++;
+            thread = Thread.currentThread().getName();
+            DefaultResponse response = new DefaultResponse();
+            response.setRequestId(request.getRequestId());
+            if (exception != null) {
+                response.setException(exception);
+            } else {
+                response.setResult(getUrl().getHost());
+            }
+            return response;
+        }
+
+        @Override
+        protected ResponseFuture<Response> doCallAsync(Request request) {
+            ResponseFuture<Response> future = new DefaultResponseFuture<>(1000);
+            future.setResult(doCall(request));
+            return future;
+        }
+
+        @Override
+        public void init() {
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+    }
+}
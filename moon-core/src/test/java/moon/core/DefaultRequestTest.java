@@ -0,0 +1,104 @@
+package moon.core;
+
+import moon.serialization.protostuff.ProtostuffSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 新老版本的DefaultRequest经protostuff互相解析，老版本的字段不错位
+ *
+ * @author Ricky Fung
+ */
+public class DefaultRequestTest {
+
+    /**
+     * 老版本DefaultRequest的字段布局，protostuff只按声明顺序编号，与类名和字段名无关
+     */
+    static class LegacyRequest {
+        Long requestId;
+        String interfaceName;
+        String methodName;
+        Object[] arguments;
+        Class<?>[] parameterTypes;
+        byte type;
+        Map<String, String> attachments;
+    }
+
+    private final ProtostuffSerializer serializer = new ProtostuffSerializer();
+
+    @Test
+    public void testReadByOldVersion() throws Exception {
+        DefaultRequest request = new DefaultRequest();
+        request.setRequestId(7L);
+        request.setInterfaceName("demo.EchoService");
+        request.setMethodName("echo");
+        request.setParameterTypes(new Class<?>[]{String.class});
+        request.setArguments(new Object[]{"hello"});
+        request.setType((byte) 1);
+        request.setAttachment("version", "1.0.0");
+        request.setMethodId(3);
+        request.setServiceId(5);
+        request.setTimeout(500);
+
+        LegacyRequest legacy = serializer.deserialize(serializer.serialize(request), LegacyRequest.class);
+
+        Assert.assertEquals(Long.valueOf(7L), legacy.requestId);
+        Assert.assertEquals("demo.EchoService", legacy.interfaceName);
+        Assert.assertEquals("echo", legacy.methodName);
+        Assert.assertArrayEquals(new Class<?>[]{String.class}, legacy.parameterTypes);
+        Assert.assertArrayEquals(new Object[]{"hello"}, legacy.arguments);
+        Assert.assertEquals(1, legacy.type);
+        Assert.assertEquals("1.0.0", legacy.attachments.get("version"));
+    }
+
+    @Test
+    public void testReadFromOldVersion() throws Exception {
+        LegacyRequest legacy = new LegacyRequest();
+        legacy.requestId = 7L;
+        legacy.interfaceName = "demo.EchoService";
+        legacy.methodName = "echo";
+        legacy.parameterTypes = new Class<?>[]{String.class};
+        legacy.arguments = new Object[]{"hello"};
+        legacy.type = 1;
+        legacy.attachments = new HashMap<>();
+        legacy.attachments.put("version", "1.0.0");
+
+        DefaultRequest request = serializer.deserialize(serializer.serialize(legacy), DefaultRequest.class);
+
+        Assert.assertEquals(7L, request.getRequestId());
+        Assert.assertEquals("demo.EchoService", request.getInterfaceName());
+        Assert.assertEquals("echo", request.getMethodName());
+        Assert.assertArrayEquals(new Class<?>[]{String.class}, request.getParameterTypes());
+        Assert.assertArrayEquals(new Object[]{"hello"}, request.getArguments());
+        Assert.assertEquals(1, request.getType());
+        Assert.assertEquals("1.0.0", request.getAttachment("version"));
+        //老版本没有的字段为0，按名称路由
+        Assert.assertEquals(0, request.getMethodId());
+        Assert.assertEquals(0, request.getServiceId());
+        Assert.assertEquals(0, request.getTimeout());
+    }
+
+    @Test
+    public void testNewFields() throws Exception {
+        DefaultRequest request = new DefaultRequest();
+        request.setRequestId(7L);
+        request.setArguments(new Object[]{"hello"});
+        request.setType((byte) 1);
+        request.setMethodId(3);
+        request.setServiceId(5);
+        request.setTimeout(500);
+
+        DefaultRequest copy = serializer.deserialize(serializer.serialize(request), DefaultRequest.class);
+
+        Assert.assertEquals(7L, copy.getRequestId());
+        Assert.assertNull(copy.getInterfaceName());
+        Assert.assertNull(copy.getMethodName());
+        Assert.assertEquals(1, copy.getType());
+        Assert.assertEquals(3, copy.getMethodId());
+        Assert.assertEquals(5, copy.getServiceId());
+        Assert.assertEquals(500, copy.getTimeout());
+    }
+}
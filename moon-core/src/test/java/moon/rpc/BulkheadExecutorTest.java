@@ -0,0 +1,79 @@
+package moon.rpc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ricky Fung
+ */
+public class BulkheadExecutorTest {
+
+    @Test
+    public void testRejectWhenFull() throws Exception {
+        BulkheadExecutor executor = new BulkheadExecutor("test", 1, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            //一个线程执行，一个排队
+            executor.execute(blocking);
+            executor.execute(blocking);
+            try {
+                executor.execute(blocking);
+                Assert.fail("bulkhead should be full");
+            } catch (RejectedExecutionException e) {
+                Assert.assertTrue(e.getMessage().startsWith("bulkhead is full: test"));
+            }
+            Assert.assertEquals(1, executor.getRejectedCount());
+            Assert.assertEquals(1, executor.getQueueSize());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testWithoutQueue() throws Exception {
+        BulkheadExecutor executor = new BulkheadExecutor("test", 1, 1, 0);
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            //没有空闲线程时直接拒绝
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                    }
+                });
+                Assert.fail("bulkhead should be full");
+            } catch (RejectedExecutionException e) {
+                Assert.assertEquals(1, executor.getRejectedCount());
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package moon.rpc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * @author Ricky Fung
+ */
+public class MethodTableTest {
+
+    interface EchoService {
+
+        String echo(String msg);
+
+        String echo(String msg, int times);
+
+        void ping();
+
+        List<String> list(long id);
+
+        static EchoService noop() {
+            return null;
+        }
+    }
+
+    /** 与EchoService方法签名相同的另一个接口 **/
+    interface SameEchoService {
+
+        void ping();
+
+        List<String> list(long id);
+
+        String echo(String msg, int times);
+
+        String echo(String msg);
+    }
+
+    /** 比EchoService多一个方法 **/
+    interface NewEchoService extends EchoService {
+
+        String hello(String name);
+    }
+
+    @Test
+    public void testMethodIds() throws Exception {
+        MethodTable table = MethodTable.of(EchoService.class);
+        //static方法不参与编号
+        Assert.assertEquals(4, table.size());
+
+        boolean[] seen = new boolean[table.size() + 1];
+        for (Method method : EchoService.class.getMethods()) {
+            if (method.getName().equals("noop")) {
+                continue;
+            }
+            int id = table.getMethodId(method.getName(), method.getParameterTypes());
+            Assert.assertTrue(method + " id:" + id, id >= 1 && id <= table.size());
+            Assert.assertFalse(seen[id]);
+            seen[id] = true;
+            Assert.assertEquals(method, table.getMethod(id));
+        }
+    }
+
+    @Test
+    public void testOverload() throws Exception {
+        MethodTable table = MethodTable.of(EchoService.class);
+        int id1 = table.getMethodId("echo", new Class<?>[]{String.class});
+        int id2 = table.getMethodId("echo", new Class<?>[]{String.class, int.class});
+        Assert.assertNotEquals(id1, id2);
+        Assert.assertEquals(EchoService.class.getMethod("echo", String.class), table.getMethod(id1));
+        Assert.assertEquals(EchoService.class.getMethod("echo", String.class, int.class), table.getMethod(id2));
+        //无参方法传null和空数组一样
+        Assert.assertEquals(table.getMethodId("ping", new Class<?>[0]), table.getMethodId("ping", null));
+    }
+
+    @Test
+    public void testUnknownMethod() {
+        MethodTable table = MethodTable.of(EchoService.class);
+        Assert.assertEquals(0, table.getMethodId("hello", new Class<?>[]{String.class}));
+        Assert.assertEquals(0, table.getMethodId("echo", new Class<?>[]{Integer.class}));
+        Assert.assertEquals(0, table.getMethodId("noop", null));
+        Assert.assertNull(table.getMethod(0));
+        Assert.assertNull(table.getMethod(table.size() + 1));
+        Assert.assertNull(table.getSignature(0));
+    }
+
+    @Test
+    public void testDigest() {
+        MethodTable table = MethodTable.of(EchoService.class);
+        Assert.assertSame(table, MethodTable.of(EchoService.class));
+        Assert.assertEquals(16, table.getDigest().length());
+
+        //方法签名相同则方法id和摘要相同，与声明顺序无关
+        MethodTable same = MethodTable.of(SameEchoService.class);
+        Assert.assertEquals(table.getDigest(), same.getDigest());
+        for (int id = 1; id <= table.size(); id++) {
+            Assert.assertEquals(table.getSignature(id), same.getSignature(id));
+        }
+
+        //接口变化后摘要不同
+        Assert.assertNotEquals(table.getDigest(), MethodTable.of(NewEchoService.class).getDigest());
+    }
+}
@@ -0,0 +1,148 @@
+package moon.rpc;
+
+import moon.common.URL;
+import moon.common.URLParam;
+import moon.core.DefaultRequest;
+import moon.core.Request;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ricky Fung
+ */
+public class ServiceDispatcherTest {
+
+    public interface EchoService {
+
+        String echo(String msg);
+
+        void ping();
+    }
+
+    public static class EchoServiceImpl implements EchoService {
+
+        @Override
+        public String echo(String msg) {
+            return msg;
+        }
+
+        @Override
+        public void ping() {
+        }
+    }
+
+    @Test
+    public void testServiceMode() {
+        URL url = newUrl();
+        url.addParameter(URLParam.dispatch.getName(), "direct");
+        ServiceDispatcher dispatcher = newDispatcher(url);
+        Assert.assertEquals(DispatchMode.DIRECT, dispatcher.getMode(newRequest("echo", String.class)));
+        Assert.assertEquals(DispatchMode.DIRECT, dispatcher.getMode(newRequest("ping")));
+        dispatcher.destroy();
+    }
+
+    @Test
+    public void testDefaultMode() {
+        //没有配置或配置错误时使用共享线程池
+        Assert.assertEquals(DispatchMode.SHARED, newDispatcher(newUrl()).getMode(newRequest("ping")));
+
+        URL url = newUrl();
+        url.addParameter(URLParam.dispatch.getName(), "unknown");
+        Assert.assertEquals(DispatchMode.SHARED, newDispatcher(url).getMode(newRequest("ping")));
+    }
+
+    @Test
+    public void testMethodMode() {
+        URL url = newUrl();
+        url.addParameter("ping." + URLParam.dispatch.getName(), "direct");
+        url.addParameter("echo." + URLParam.dispatch.getName(), "ordered");
+        ServiceDispatcher dispatcher = newDispatcher(url);
+
+        Assert.assertEquals(DispatchMode.DIRECT, dispatcher.getMode(newRequest("ping")));
+        Assert.assertEquals(DispatchMode.ORDERED, dispatcher.getMode(newRequest("echo", String.class)));
+
+        //老版本consumer没有方法id，按方法名查找
+        DefaultRequest request = new DefaultRequest();
+        request.setMethodName("ping");
+        Assert.assertEquals(DispatchMode.DIRECT, dispatcher.getMode(request));
+        dispatcher.destroy();
+    }
+
+    @Test
+    public void testDedicated() {
+        URL url = newUrl();
+        url.addParameter(URLParam.dispatch.getName(), "dedicated");
+        url.addParameter(URLParam.dispatchThreads.getName(), "2");
+        ServiceDispatcher dispatcher = newDispatcher(url);
+
+        Assert.assertEquals(DispatchMode.DEDICATED, dispatcher.getMode(newRequest("ping")));
+        Assert.assertEquals(1, dispatcher.getBulkheads().size());
+        BulkheadExecutor bulkhead = dispatcher.getBulkheads().get(0);
+        Assert.assertEquals("EchoService", bulkhead.getName());
+        Assert.assertEquals(2, bulkhead.getMaximumPoolSize());
+        Assert.assertSame(bulkhead, dispatcher.getExecutor(newRequest("ping")));
+        Assert.assertSame(bulkhead, dispatcher.getExecutor(newRequest("echo", String.class)));
+
+        dispatcher.destroy();
+        Assert.assertTrue(bulkhead.isShutdown());
+    }
+
+    @Test
+    public void testMethodBulkhead() {
+        URL url = newUrl();
+        url.addParameter("echo." + URLParam.dispatchThreads.getName(), "1");
+        ServiceDispatcher dispatcher = newDispatcher(url);
+
+        //配置了方法级线程数的方法在自己的线程池中执行，其他方法不受影响
+        Assert.assertEquals(DispatchMode.DEDICATED, dispatcher.getMode(newRequest("echo", String.class)));
+        Assert.assertEquals(DispatchMode.SHARED, dispatcher.getMode(newRequest("ping")));
+        Assert.assertEquals(1, dispatcher.getBulkheads().size());
+        BulkheadExecutor bulkhead = dispatcher.getBulkheads().get(0);
+        Assert.assertEquals("EchoService-echo", bulkhead.getName());
+        Assert.assertSame(bulkhead, dispatcher.getExecutor(newRequest("echo", String.class)));
+        dispatcher.destroy();
+    }
+
+    @Test
+    public void testQueueTimeout() {
+        URL url = newUrl();
+        url.addParameter(URLParam.maxQueueTime.getName(), "100");
+        url.addParameter(URLParam.requestTimeout.getName(), "1000");
+        ServiceDispatcher dispatcher = newDispatcher(url);
+
+        DefaultRequest request = newRequest("ping");
+        Assert.assertFalse(dispatcher.isQueueTimeout(request, TimeUnit.MILLISECONDS.toNanos(50)));
+        Assert.assertTrue(dispatcher.isQueueTimeout(request, TimeUnit.MILLISECONDS.toNanos(150)));
+
+        //调用方携带的剩余超时时间更短时以其为准
+        request.setTimeout(30);
+        Assert.assertTrue(dispatcher.isQueueTimeout(request, TimeUnit.MILLISECONDS.toNanos(50)));
+    }
+
+    @Test
+    public void testQueueTimeoutByProviderTimeout() {
+        URL url = newUrl();
+        url.addParameter(URLParam.requestTimeout.getName(), "100");
+        ServiceDispatcher dispatcher = newDispatcher(url);
+
+        //请求没有携带超时时间时取provider的timeout
+        Assert.assertFalse(dispatcher.isQueueTimeout(newRequest("ping"), TimeUnit.MILLISECONDS.toNanos(50)));
+        Assert.assertTrue(dispatcher.isQueueTimeout(newRequest("ping"), TimeUnit.MILLISECONDS.toNanos(150)));
+    }
+
+    private static ServiceDispatcher newDispatcher(URL url) {
+        return new ServiceDispatcher(new DefaultProvider<EchoService>(new EchoServiceImpl(), url, EchoService.class));
+    }
+
+    private static URL newUrl() {
+        return new URL("moon", "localhost", 9000, EchoService.class.getName());
+    }
+
+    private static DefaultRequest newRequest(String methodName, Class<?>... parameterTypes) {
+        DefaultRequest request = new DefaultRequest();
+        request.setMethodId(MethodTable.of(EchoService.class).getMethodId(methodName, parameterTypes));
+        return request;
+    }
+}
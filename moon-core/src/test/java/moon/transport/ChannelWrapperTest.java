@@ -0,0 +1,82 @@
+package moon.transport;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Ricky Fung
+ */
+public class ChannelWrapperTest {
+
+    @Test
+    public void testUnwritableWithoutBackpressure() {
+        EmbeddedChannel channel = newUnwritableChannel();
+        //没有配置背压时和以前一样，连接不可写也照常发送
+        ChannelWrapper wrapper = new ChannelWrapper(channel.newSucceededFuture(), 0, false);
+        Assert.assertTrue(wrapper.tryAcquire());
+        Assert.assertEquals(1, wrapper.getPending());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testUnwritableWithBackpressure() throws Exception {
+        EmbeddedChannel channel = newUnwritableChannel();
+        ChannelWrapper wrapper = new ChannelWrapper(channel.newSucceededFuture(), 0, true);
+        Assert.assertFalse(wrapper.tryAcquire());
+        Assert.assertFalse(wrapper.acquire(20));
+
+        //缓冲区写出后重新可写
+        channel.flush();
+        Assert.assertTrue(channel.isWritable());
+        Assert.assertTrue(wrapper.acquire(0));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testMaxPending() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        final ChannelWrapper wrapper = new ChannelWrapper(channel.newSucceededFuture(), 2, true);
+        Assert.assertTrue(wrapper.acquire(0));
+        Assert.assertTrue(wrapper.tryAcquire());
+        Assert.assertFalse(wrapper.acquire(0));
+
+        //等待中的调用在待响应数减少后被唤醒
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final AtomicBoolean acquired = new AtomicBoolean();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                waiting.countDown();
+                try {
+                    acquired.set(wrapper.acquire(5000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        Assert.assertTrue(waiting.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        wrapper.decrementPending();
+        thread.join(1000);
+        Assert.assertTrue(acquired.get());
+        Assert.assertEquals(2, wrapper.getPending());
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel newUnwritableChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+        //写入但不flush，超过高水位后不可写
+        channel.write(Unpooled.buffer(64).writeZero(64));
+        Assert.assertFalse(channel.isWritable());
+        return channel;
+    }
+}
@@ -0,0 +1,122 @@
+package moon.transport;
+
+import moon.core.DefaultRequest;
+import moon.rpc.RpcContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author Ricky Fung
+ */
+public class InflightRequestTest {
+
+    @Test
+    public void testCancelQueued() throws Exception {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            //占住唯一的线程，后面的任务在队列中等待
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            final AtomicBoolean executed = new AtomicBoolean();
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    executed.set(true);
+                }
+            };
+            InflightRequest inflight = new InflightRequest(false);
+            inflight.setTask(pool, task);
+            pool.execute(task);
+
+            //排队中的任务直接从队列移除
+            Assert.assertTrue(inflight.cancel());
+            Assert.assertTrue(inflight.isCancelled());
+            Assert.assertTrue(pool.getQueue().isEmpty());
+            Assert.assertFalse(inflight.cancel());
+            release.countDown();
+            pool.shutdown();
+            Assert.assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+            Assert.assertFalse(executed.get());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCancelBeforeStart() {
+        //没有可移除的队列时，任务开始执行时跳过
+        InflightRequest inflight = new InflightRequest(false);
+        Assert.assertFalse(inflight.cancel());
+        Assert.assertFalse(inflight.start(RpcContext.init(new DefaultRequest())));
+        RpcContext.destroy();
+    }
+
+    @Test
+    public void testCancelRunning() throws Exception {
+        final InflightRequest inflight = new InflightRequest(true);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final AtomicBoolean cleared = new AtomicBoolean();
+        final RpcContext[] context = new RpcContext[1];
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                context[0] = RpcContext.init(new DefaultRequest());
+                Assert.assertTrue(inflight.start(context[0]));
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    //模拟业务代码捕获后恢复了中断状态
+                    Thread.currentThread().interrupt();
+                }
+                inflight.finish();
+                //回到线程池前清除取消时设置的中断状态
+                cleared.set(!Thread.currentThread().isInterrupted());
+                RpcContext.destroy();
+            }
+        });
+        thread.start();
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        //执行中的请求不能移除，标记取消并中断业务线程
+        Assert.assertFalse(inflight.cancel());
+        thread.join(1000);
+        Assert.assertTrue(inflight.isCancelled());
+        Assert.assertTrue(context[0].isCancelled());
+        Assert.assertTrue(interrupted.get());
+        Assert.assertTrue(cleared.get());
+    }
+
+    @Test
+    public void testCancelRunningWithoutInterrupt() throws Exception {
+        InflightRequest inflight = new InflightRequest(false);
+        RpcContext context = RpcContext.init(new DefaultRequest());
+        try {
+            Assert.assertTrue(inflight.start(context));
+            Assert.assertFalse(inflight.cancel());
+            Assert.assertTrue(context.isCancelled());
+            Assert.assertFalse(Thread.currentThread().isInterrupted());
+            inflight.finish();
+        } finally {
+            RpcContext.destroy();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package moon.transport;
+
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import moon.common.URL;
+import moon.common.URLParam;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ricky Fung
+ */
+public class NettyClientResourcesTest {
+
+    @Test
+    public void testSharedBySameConfig() {
+        NettyClientResources first = NettyClientResources.acquire(newUrl(2, 0));
+        NettyClientResources second = NettyClientResources.acquire(newUrl(2, 0));
+        try {
+            Assert.assertSame(first, second);
+        } finally {
+            second.release();
+            first.release();
+        }
+        Assert.assertTrue(first.getEventLoopGroup().isShuttingDown());
+    }
+
+    @Test
+    public void testNotSharedByDifferentConfig() {
+        NettyClientResources first = NettyClientResources.acquire(newUrl(2, 0));
+        NettyClientResources second = NettyClientResources.acquire(newUrl(1, 2));
+        try {
+            Assert.assertNotSame(first, second);
+            Assert.assertNull(first.getCallbackExecutor());
+            Assert.assertNotNull(second.getCallbackExecutor());
+        } finally {
+            first.release();
+            Assert.assertTrue(first.getEventLoopGroup().isShuttingDown());
+            Assert.assertFalse(second.getEventLoopGroup().isShuttingDown());
+            second.release();
+        }
+    }
+
+    @Test
+    public void testInIoThread() throws Exception {
+        final NettyClientResources resources = NettyClientResources.acquire(newUrl(1, 0));
+        try {
+            Assert.assertFalse(resources.inIoThread());
+            Assert.assertTrue(resources.getEventLoopGroup().submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return resources.inIoThread();
+                }
+            }).get());
+
+            final CompletableFuture<Boolean> inTimer = new CompletableFuture<>();
+            resources.getTimer().newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    inTimer.complete(resources.inIoThread());
+                }
+            }, 1, TimeUnit.MILLISECONDS);
+            Assert.assertTrue(inTimer.get(1, TimeUnit.SECONDS));
+        } finally {
+            resources.release();
+        }
+    }
+
+    private static URL newUrl(int ioThreads, int callbackThreads) {
+        URL url = new URL("moon", "localhost", 9000, "moon.transport.NettyClientResourcesTest");
+        url.addParameter(URLParam.ioThreads.getName(), String.valueOf(ioThreads));
+        url.addParameter(URLParam.callbackThreads.getName(), String.valueOf(callbackThreads));
+        return url;
+    }
+}
@@ -0,0 +1,107 @@
+package moon.transport;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import moon.core.Response;
+import moon.util.Constants;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * 超长的帧被丢弃后，同一连接上之后的帧照常解码
+ *
+ * @author Ricky Fung
+ */
+public class NettyDecoderTest {
+    private static final int MAX_FRAME_LENGTH = 16;
+
+    @Test
+    public void testTooLongRequestThenValidFrame() {
+        EmbeddedChannel channel = newChannel();
+        ByteBuf in = Unpooled.buffer();
+        writeFrame(in, Constants.FLAG_REQUEST, 1L, 64);
+        writeFrame(in, Constants.FLAG_CANCEL, 2L, 0);
+
+        channel.writeInbound(in);
+
+        //超长的请求返回异常响应
+        Response response = channel.readOutbound();
+        Assert.assertEquals(1L, response.getRequestId());
+        Assert.assertNotNull(response.getException());
+
+        ControlFrame frame = channel.readInbound();
+        Assert.assertTrue(frame.isCancel());
+        Assert.assertEquals(2L, frame.getRequestId());
+        Assert.assertTrue(channel.isActive());
+        Assert.assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testTooLongFrameAcrossReads() {
+        EmbeddedChannel channel = newChannel();
+        ByteBuf frames = Unpooled.buffer();
+        writeFrame(frames, Constants.FLAG_REQUEST, 1L, 1024);
+        writeFrame(frames, Constants.FLAG_CANCEL, 2L, 0);
+        writeFrame(frames, Constants.FLAG_HEARTBEAT, 0L, 0);
+
+        //超长帧的消息体分多次到达，父类在之后的读取中继续丢弃
+        channel.writeInbound(frames.readRetainedSlice(Constants.HEADER_SIZE + 100));
+        channel.writeInbound(frames.readRetainedSlice(500));
+        Assert.assertNull(channel.readInbound());
+        channel.writeInbound(frames);
+
+        Response response = channel.readOutbound();
+        Assert.assertEquals(1L, response.getRequestId());
+        ControlFrame cancel = channel.readInbound();
+        Assert.assertEquals(2L, cancel.getRequestId());
+        ControlFrame heartbeat = channel.readInbound();
+        Assert.assertTrue(heartbeat.isHeartbeat());
+        Assert.assertNull(channel.readInbound());
+        Assert.assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testTooLongResponse() {
+        EmbeddedChannel channel = newChannel();
+        ByteBuf in = Unpooled.buffer();
+        writeFrame(in, Constants.FLAG_RESPONSE, 3L, 64);
+        writeFrame(in, Constants.FLAG_HEARTBEAT, 0L, 0);
+
+        channel.writeInbound(in);
+
+        //超长的响应以异常结束对应的调用
+        Response response = channel.readInbound();
+        Assert.assertEquals(3L, response.getRequestId());
+        Assert.assertNotNull(response.getException());
+        ControlFrame heartbeat = channel.readInbound();
+        Assert.assertTrue(heartbeat.isHeartbeat());
+        Assert.assertNull(channel.readOutbound());
+        Assert.assertFalse(channel.finish());
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testHeaderNotSupport() {
+        EmbeddedChannel channel = newChannel();
+        ByteBuf in = Unpooled.buffer();
+        in.writeShort(0x1234);
+        in.writeByte(Constants.FLAG_REQUEST);
+        in.writeLong(1L);
+        in.writeInt(0);
+        channel.writeInbound(in);
+    }
+
+    private static EmbeddedChannel newChannel() {
+        //控制帧和超长帧不需要codec
+        return new EmbeddedChannel(new NettyDecoder(null, null, MAX_FRAME_LENGTH));
+    }
+
+    private static void writeFrame(ByteBuf buf, byte type, long requestId, int dataLength) {
+        buf.writeShort(Constants.NETTY_MAGIC_TYPE);
+        buf.writeByte(type);
+        buf.writeLong(requestId);
+        buf.writeInt(dataLength);
+        buf.writeZero(dataLength);
+    }
+}
@@ -0,0 +1,154 @@
+package moon.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Ricky Fung
+ */
+public class OrderedExecutorTest {
+
+    @Test
+    public void testExecuteInOrder() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            OrderedExecutor executor = new OrderedExecutor(pool, 1000);
+            final List<Integer> executed = Collections.synchronizedList(new ArrayList<Integer>());
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(500);
+            for (int i = 0; i < 500; i++) {
+                final int n = i;
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int count = running.incrementAndGet();
+                        maxRunning.set(Math.max(maxRunning.get(), count));
+                        executed.add(n);
+                        running.decrementAndGet();
+                        done.countDown();
+                    }
+                });
+            }
+            Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+            //同一时刻只占用一个线程，按提交顺序执行
+            Assert.assertEquals(1, maxRunning.get());
+            for (int i = 0; i < 500; i++) {
+                Assert.assertEquals(Integer.valueOf(i), executed.get(i));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testTaskFailureNotBlockNext() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            OrderedExecutor executor = new OrderedExecutor(pool, 10);
+            final CountDownLatch done = new CountDownLatch(1);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("task failure");
+                }
+            });
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+            Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueueFull() {
+        ManualExecutor pool = new ManualExecutor();
+        OrderedExecutor executor = new OrderedExecutor(pool, 2);
+        CountingTask task = new CountingTask();
+        executor.execute(task);
+        executor.execute(task);
+        try {
+            executor.execute(task);
+            Assert.fail("ordered queue should be full");
+        } catch (RejectedExecutionException e) {
+            //排满后拒绝，由调用方返回过载响应
+        }
+        //只占用线程池的一个任务
+        Assert.assertEquals(1, pool.tasks.size());
+
+        pool.runAll();
+        Assert.assertEquals(2, task.count.get());
+        executor.execute(task);
+        pool.runAll();
+        Assert.assertEquals(3, task.count.get());
+    }
+
+    @Test
+    public void testPoolRejected() {
+        final ManualExecutor pool = new ManualExecutor();
+        pool.reject = true;
+        OrderedExecutor executor = new OrderedExecutor(pool, 2);
+        CountingTask rejected = new CountingTask();
+        try {
+            executor.execute(rejected);
+            Assert.fail("pool should reject");
+        } catch (RejectedExecutionException e) {
+            //任务被撤回
+        }
+
+        pool.reject = false;
+        CountingTask task = new CountingTask();
+        executor.execute(task);
+        executor.execute(task);
+        pool.runAll();
+        Assert.assertEquals(0, rejected.count.get());
+        Assert.assertEquals(2, task.count.get());
+    }
+
+    /**
+     * 手动执行提交的任务
+     */
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private boolean reject;
+
+        @Override
+        public void execute(Runnable command) {
+            if (reject) {
+                throw new RejectedExecutionException("pool is full");
+            }
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private static class CountingTask implements Runnable {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void run() {
+            count.incrementAndGet();
+        }
+    }
+}
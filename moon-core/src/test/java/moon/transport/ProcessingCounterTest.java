@@ -0,0 +1,56 @@
+package moon.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Ricky Fung
+ */
+public class ProcessingCounterTest {
+
+    @Test
+    public void testAwaitWithoutProcessing() throws Exception {
+        ProcessingCounter counter = new ProcessingCounter();
+        Assert.assertTrue(counter.await(0));
+    }
+
+    @Test
+    public void testAwaitTimeout() throws Exception {
+        ProcessingCounter counter = new ProcessingCounter();
+        counter.increment();
+        long start = System.nanoTime();
+        Assert.assertFalse(counter.await(50));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(1, counter.get());
+    }
+
+    @Test
+    public void testWakeUpByLastRequest() throws Exception {
+        final ProcessingCounter counter = new ProcessingCounter();
+        counter.increment();
+        counter.increment();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    counter.decrement();
+                    Thread.sleep(50);
+                    counter.decrement();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+
+        //最后一个请求处理完时立即唤醒，不等到超时
+        long start = System.nanoTime();
+        Assert.assertTrue(counter.await(10000));
+        Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        Assert.assertEquals(0, counter.get());
+        thread.join();
+    }
+}
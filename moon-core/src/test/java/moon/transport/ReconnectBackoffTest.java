@@ -0,0 +1,80 @@
+package moon.transport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Ricky Fung
+ */
+public class ReconnectBackoffTest {
+
+    @Test
+    public void testDelayBounds() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 10000);
+        long delay = 100;
+        for (int i = 0; i < 7; i++) {
+            Assert.assertTrue(backoff.connecting());
+            long next = backoff.failed();
+            //取[间隔/2, 间隔]之间的随机值
+            Assert.assertTrue("attempt " + i + ": " + next, next >= delay / 2 && next <= delay);
+            delay <<= 1;
+        }
+        Assert.assertEquals(7, backoff.getAttempts());
+    }
+
+    @Test
+    public void testCapAtMaxDelay() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 1000);
+        //间隔增长到maxDelay后不再增长，次数很多时也不会溢出
+        for (int i = 0; i < 100; i++) {
+            long next = backoff.failed();
+            Assert.assertTrue("attempt " + i + ": " + next, next >= 0 && next <= 1000);
+            if (i >= 4) {
+                Assert.assertTrue("attempt " + i + ": " + next, next >= 500);
+            }
+        }
+    }
+
+    @Test
+    public void testResetAfterConnected() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 10000);
+        for (int i = 0; i < 5; i++) {
+            backoff.failed();
+        }
+        Assert.assertEquals(ReconnectBackoff.State.BACKOFF, backoff.getState());
+
+        Assert.assertTrue(backoff.connecting());
+        backoff.connected();
+        Assert.assertEquals(ReconnectBackoff.State.CONNECTED, backoff.getState());
+        Assert.assertEquals(0, backoff.getAttempts());
+
+        //断开后重新从initialDelay开始
+        long next = backoff.failed();
+        Assert.assertTrue(String.valueOf(next), next >= 50 && next <= 100);
+    }
+
+    @Test
+    public void testOnlyOneConnecting() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 10000);
+        Assert.assertEquals(ReconnectBackoff.State.DISCONNECTED, backoff.getState());
+        Assert.assertTrue(backoff.connecting());
+        Assert.assertFalse(backoff.connecting());
+
+        backoff.connected();
+        Assert.assertFalse(backoff.connecting());
+
+        backoff.failed();
+        Assert.assertTrue(backoff.connecting());
+        Assert.assertEquals(ReconnectBackoff.State.CONNECTING, backoff.getState());
+    }
+
+    @Test
+    public void testInvalidDelays() {
+        //initialDelay至少1ms，maxDelay不小于initialDelay
+        ReconnectBackoff backoff = new ReconnectBackoff(0, -1);
+        for (int i = 0; i < 10; i++) {
+            long next = backoff.failed();
+            Assert.assertTrue(String.valueOf(next), next >= 0 && next <= 1);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package moon.transport;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import moon.common.URL;
+import moon.common.URLParam;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * EmbeddedChannel的outboundMessages中只有flush过的消息，pending任务由runPendingTasks()执行
+ *
+ * @author Ricky Fung
+ */
+public class WriteBatcherTest {
+
+    @Test
+    public void testWithoutBatching() {
+        EmbeddedChannel channel = newChannel(0, 1024 * 1024);
+
+        WriteBatcher.write(channel, "a");
+        Assert.assertEquals(1, channel.outboundMessages().size());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFlushAtMaxFrames() {
+        EmbeddedChannel channel = newChannel(3, 1024 * 1024);
+
+        ChannelFuture first = WriteBatcher.write(channel, "a");
+        WriteBatcher.write(channel, "b");
+        Assert.assertEquals(0, channel.outboundMessages().size());
+        Assert.assertFalse(first.isDone());
+
+        //第3条达到writeBatchSize，立即flush
+        WriteBatcher.write(channel, "c");
+        Assert.assertEquals(3, channel.outboundMessages().size());
+        Assert.assertTrue(first.isSuccess());
+
+        //计数已清零，下一批重新累积
+        WriteBatcher.write(channel, "d");
+        Assert.assertEquals(3, channel.outboundMessages().size());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFlushAfterPendingTasks() {
+        EmbeddedChannel channel = newChannel(16, 1024 * 1024);
+
+        WriteBatcher.write(channel, "a");
+        WriteBatcher.write(channel, "b");
+        Assert.assertEquals(0, channel.outboundMessages().size());
+
+        //本轮任务执行完后统一flush一次
+        channel.runPendingTasks();
+        Assert.assertEquals(2, channel.outboundMessages().size());
+
+        channel.runPendingTasks();
+        Assert.assertEquals(2, channel.outboundMessages().size());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testFlushAtMaxBytes() {
+        EmbeddedChannel channel = newChannel(16, 1024);
+
+        WriteBatcher.write(channel, Unpooled.buffer(2048).writeZero(2048));
+        Assert.assertEquals(1, channel.outboundMessages().size());
+        channel.finishAndReleaseAll();
+    }
+
+    private static EmbeddedChannel newChannel(int writeBatchSize, int writeBatchBytes) {
+        URL url = new URL("moon", "localhost", 9000, "moon.transport.WriteBatcherTest");
+        url.addParameter(URLParam.writeBatchSize.getName(), String.valueOf(writeBatchSize));
+        url.addParameter(URLParam.writeBatchBytes.getName(), String.valueOf(writeBatchBytes));
+        EmbeddedChannel channel = new EmbeddedChannel();
+        WriteBatcher.install(channel, url);
+        return channel;
+    }
+}
@@ -0,0 +1,111 @@
+package moon.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * @author Ricky Fung
+ */
+public class ConcurrentLongHashMapTest {
+
+    @Test
+    public void testPutGet() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.put(1L, "a"));
+        Assert.assertNull(map.put(-1L, "b"));
+        Assert.assertNull(map.put(Long.MAX_VALUE, "c"));
+
+        Assert.assertEquals("a", map.get(1L));
+        Assert.assertEquals("b", map.get(-1L));
+        Assert.assertEquals("c", map.get(Long.MAX_VALUE));
+        Assert.assertNull(map.get(2L));
+        Assert.assertEquals(3, map.size());
+
+        //覆盖旧值，返回旧值
+        Assert.assertEquals("a", map.put(1L, "d"));
+        Assert.assertEquals("d", map.get(1L));
+        Assert.assertEquals(3, map.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testPutNullValue() {
+        new ConcurrentLongHashMap<String>().put(1L, null);
+    }
+
+    @Test
+    public void testRemove() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        map.put(1L, "a");
+        map.put(2L, "b");
+
+        Assert.assertEquals("a", map.remove(1L));
+        Assert.assertNull(map.get(1L));
+        Assert.assertNull(map.remove(1L));
+        Assert.assertEquals("b", map.get(2L));
+        Assert.assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testRemoveExpected() {
+        ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+        String value = new String("a");
+        map.put(1L, value);
+
+        //value相等但不是同一对象时不移除
+        Assert.assertFalse(map.remove(1L, new String("a")));
+        Assert.assertFalse(map.remove(1L, null));
+        Assert.assertFalse(map.remove(2L, value));
+        Assert.assertEquals(1, map.size());
+
+        Assert.assertTrue(map.remove(1L, value));
+        Assert.assertNull(map.get(1L));
+        Assert.assertFalse(map.remove(1L, value));
+        Assert.assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testResize() {
+        //只有一个段，初始容量很小，插入过程中多次扩容
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(2, 1);
+        int n = 10000;
+        for (long i = 0; i < n; i++) {
+            map.put(i, i);
+        }
+        Assert.assertEquals(n, map.size());
+        for (long i = 0; i < n; i++) {
+            Assert.assertEquals(Long.valueOf(i), map.get(i));
+        }
+        for (long i = 0; i < n; i += 2) {
+            Assert.assertEquals(Long.valueOf(i), map.remove(i));
+        }
+        Assert.assertEquals(n / 2, map.size());
+        for (long i = 0; i < n; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : Long.valueOf(i), map.get(i));
+        }
+    }
+
+    @Test
+    public void testCollisions() {
+        //小容量的段内大量线性探测，交替put/remove产生墓碑，与HashMap的结果对比
+        ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>(2, 1);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(20261018L);
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(64);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 64; key++) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
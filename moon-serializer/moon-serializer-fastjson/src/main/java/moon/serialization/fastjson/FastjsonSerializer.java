@@ -5,6 +5,8 @@ import moon.codec.Serializer;
 import moon.util.StringUtils;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * ${DESCRIPTION}
@@ -19,9 +21,19 @@ public class FastjsonSerializer implements Serializer {
         return StringUtils.getBytes(jsonString);
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        JSON.writeJSONString(out, msg);
+    }
+
     @Override
     public <T> T deserialize(byte[] data, Class<T> type) throws IOException {
         String jsonString = StringUtils.getString(data);
         return JSON.parseObject(jsonString, type);
     }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        return JSON.parseObject(in, type);
+    }
 }
@@ -5,8 +5,12 @@ import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import moon.codec.Serializer;
 import org.nustaq.serialization.FSTConfiguration;
+import org.nustaq.serialization.FSTObjectInput;
+import org.nustaq.serialization.FSTObjectOutput;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -29,9 +33,32 @@ public class FstSerializer implements Serializer {
         return getFSTConfiguration(msg.getClass()).asByteArray(msg);
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        //FSTObjectOutput由FSTConfiguration复用，不能close
+        FSTObjectOutput output = getFSTConfiguration(msg.getClass()).getObjectOutput(out);
+        output.writeObject(msg);
+        output.flush();
+    }
+
     @Override
     public <T> T deserialize(byte[] data, Class<T> type) throws IOException {
-        return (T) getFSTConfiguration(type).asObject(data);
+        return type.cast(getFSTConfiguration(type).asObject(data));
+    }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        //FSTObjectInput由FSTConfiguration复用，不能close
+        FSTObjectInput input = getFSTConfiguration(type).getObjectInput(in);
+        try {
+            return type.cast(input.readObject(type));
+        } catch (ClassNotFoundException e) {
+            throw new IOException("class not found", e);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("fst deserialize error, class:" + type, e);
+        }
     }
 
     private static FSTConfiguration getFSTConfiguration(Class<?> clz) throws IOException {
@@ -7,6 +7,8 @@ import moon.codec.Serializer;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * ${DESCRIPTION}
@@ -31,16 +33,29 @@ public class HessianSerializer implements Serializer {
         }
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        Hessian2Output output = new Hessian2Output(out);
+        output.writeObject(msg);
+        output.flush();
+    }
+
     @Override
     public <T> T deserialize(byte[] buf, Class<T> type) throws IOException {
         Hessian2Input input = null;
         try {
             input = new Hessian2Input(new ByteArrayInputStream(buf));
-            return (T) input.readObject(type);
+            return type.cast(input.readObject(type));
         } finally {
             if(input!=null){
                 input.close();
             }
         }
     }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        Hessian2Input input = new Hessian2Input(in);
+        return type.cast(input.readObject(type));
+    }
 }
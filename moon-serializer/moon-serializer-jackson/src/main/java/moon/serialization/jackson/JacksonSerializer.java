@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import moon.codec.Serializer;
 import moon.util.StringUtils;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * ${DESCRIPTION}
@@ -20,9 +22,19 @@ public class JacksonSerializer implements Serializer {
         return StringUtils.getBytes(jsonString);
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        objectMapper.writeValue(out, msg);
+    }
+
     @Override
     public <T> T deserialize(byte[] data, Class<T> type) throws IOException {
         String jsonString =  StringUtils.getString(data);
         return objectMapper.readValue(jsonString, type);
     }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        return objectMapper.readValue(in, type);
+    }
 }
@@ -27,17 +27,34 @@ public class JdkSerializer implements Serializer {
         }
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        ObjectOutputStream output = new ObjectOutputStream(out);
+        output.writeObject(msg);
+        output.flush();
+    }
+
     @Override
     public <T> T deserialize(byte[] data, Class<T> type) throws IOException {
         // Read Obj from File
         ObjectInputStream input = null;
         try {
             input = new ObjectInputStream(new ByteArrayInputStream(data));
-            return (T) input.readObject();
+            return type.cast(input.readObject());
         } catch (ClassNotFoundException e) {
             throw new IOException("class not found", e);
         } finally {
             IoUtils.closeQuietly(input);
         }
     }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        ObjectInputStream input = new ObjectInputStream(in);
+        try {
+            return type.cast(input.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("class not found", e);
+        }
+    }
 }
@@ -9,6 +9,8 @@ import org.objenesis.strategy.StdInstantiatorStrategy;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * ${DESCRIPTION}
@@ -38,6 +40,14 @@ public class KryoSerializer implements Serializer {
         }
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        Output output = new Output(out);
+        Kryo kryo = THREAD_LOCAL.get();
+        kryo.writeObject(output, msg);
+        output.flush();
+    }
+
     @Override
     public <T> T deserialize(byte[] buf, Class<T> type) throws IOException {
 
@@ -48,4 +58,11 @@ public class KryoSerializer implements Serializer {
             return kryo.readObject(input, type);
         }
     }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        Input input = new Input(in);
+        Kryo kryo = THREAD_LOCAL.get();
+        return kryo.readObject(input, type);
+    }
 }
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import moon.codec.Serializer;
 import org.msgpack.jackson.dataformat.MessagePackFactory;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * msgpack-java: https://github.com/msgpack/msgpack-java
@@ -19,8 +21,18 @@ public class MessagePackSerializer implements Serializer {
         return objectMapper.writeValueAsBytes(msg);
     }
 
+    @Override
+    public void serialize(Object msg, OutputStream out) throws IOException {
+        objectMapper.writeValue(out, msg);
+    }
+
     @Override
     public <T> T deserialize(byte[] buf, Class<T> type) throws IOException {
         return objectMapper.readValue(buf, type);
     }
+
+    @Override
+    public <T> T deserialize(InputStream in, Class<T> type) throws IOException {
+        return objectMapper.readValue(in, type);
+    }
 }
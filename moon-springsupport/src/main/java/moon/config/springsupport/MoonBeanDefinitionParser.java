@@ -1,6 +1,7 @@
 package moon.config.springsupport;
 
 import moon.config.ApplicationConfig;
+import moon.config.MethodConfig;
 import moon.config.ProtocolConfig;
 import moon.config.RegistryConfig;
 import moon.util.StringUtils;
@@ -11,6 +12,8 @@ import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.beans.factory.xml.BeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 /**
  * ${DESCRIPTION}
@@ -110,10 +113,30 @@ public class MoonBeanDefinitionParser implements BeanDefinitionParser {
             parseCommonProperty("pool-type", "poolType", element, bd, parserContext);
             parseCommonProperty("min-pool-size", "minPoolSize", element, bd, parserContext);
             parseCommonProperty("max-pool-size", "maxPoolSize", element, bd, parserContext);
+            parseCommonProperty("queues", null, element, bd, parserContext);
+            parseCommonProperty("shutdown-grace-period", "shutdownGracePeriod", element, bd, parserContext);
+            parseCommonProperty("shutdown-timeout", "shutdownTimeout", element, bd, parserContext);
             parseCommonProperty("charset", null, element, bd, parserContext);
             parseCommonProperty("buffer-size", "bufferSize", element, bd, parserContext);
             parseCommonProperty("payload", null, element, bd, parserContext);
+            parseCommonProperty("io-threads", "ioThreads", element, bd, parserContext);
+            parseCommonProperty("connections", null, element, bd, parserContext);
+            parseCommonProperty("connection-selector", "connectionSelector", element, bd, parserContext);
+            parseCommonProperty("transport", null, element, bd, parserContext);
+            parseCommonProperty("epoll-mode", "epollMode", element, bd, parserContext);
+            parseCommonProperty("reuse-port", "reusePort", element, bd, parserContext);
+            parseCommonProperty("virtual-threads", "virtualThreads", element, bd, parserContext);
+            parseCommonProperty("write-batch-size", "writeBatchSize", element, bd, parserContext);
+            parseCommonProperty("write-batch-bytes", "writeBatchBytes", element, bd, parserContext);
+            parseCommonProperty("write-batch-delay", "writeBatchDelay", element, bd, parserContext);
+            parseCommonProperty("write-buffer-low-water-mark", "writeBufferLowWaterMark", element, bd, parserContext);
+            parseCommonProperty("write-buffer-high-water-mark", "writeBufferHighWaterMark", element, bd, parserContext);
+            parseCommonProperty("max-pending-requests", "maxPendingRequests", element, bd, parserContext);
+            parseCommonProperty("backpressure-timeout", "backpressureTimeout", element, bd, parserContext);
             parseCommonProperty("heartbeat", null, element, bd, parserContext);
+            parseCommonProperty("connect-timeout", "connectTimeout", element, bd, parserContext);
+            parseCommonProperty("reconnect-interval", "reconnectInterval", element, bd, parserContext);
+            parseCommonProperty("max-reconnect-interval", "maxReconnectInterval", element, bd, parserContext);
             parseCommonProperty("default", "isDefault", element, bd, parserContext);
         } else if (RegistryConfig.class.equals(beanClass)) {
             /**
@@ -150,6 +173,9 @@ public class MoonBeanDefinitionParser implements BeanDefinitionParser {
             parseCommonProperty("timeout", null, element, bd, parserContext);
             parseCommonProperty("retries", null, element, bd, parserContext);
             parseCommonProperty("check", null, element, bd, parserContext);
+            parseCommonProperty("proxy-type", "proxyType", element, bd, parserContext);
+            //<moon:method name="emit" oneway="true" />
+            parseMethods(element, bd);
 
         } else if (ServiceConfigBean.class.equals(beanClass)) {
             /**
@@ -176,6 +202,14 @@ public class MoonBeanDefinitionParser implements BeanDefinitionParser {
 
             parseCommonProperty("group", null, element, bd, parserContext);
             parseCommonProperty("version", null, element, bd, parserContext);
+            parseCommonProperty("dispatch", null, element, bd, parserContext);
+            parseCommonProperty("dispatch-threads", "dispatchThreads", element, bd, parserContext);
+            parseCommonProperty("dispatch-core-threads", "dispatchCoreThreads", element, bd, parserContext);
+            parseCommonProperty("dispatch-queues", "dispatchQueues", element, bd, parserContext);
+            parseCommonProperty("max-queue-time", "maxQueueTime", element, bd, parserContext);
+            parseCommonProperty("cancel-interrupt", "cancelInterrupt", element, bd, parserContext);
+            //<moon:method name="get" dispatch="direct" />
+            parseMethods(element, bd);
         }
         return bd;
     }
@@ -223,6 +257,52 @@ public class MoonBeanDefinitionParser implements BeanDefinitionParser {
         }
     }
 
+    /**
+     * 解析reference/service下的method子节点
+     */
+    @SuppressWarnings( {"rawtypes", "unchecked"})
+    private static void parseMethods(Element element, BeanDefinition bd) {
+        NodeList nodes = element.getChildNodes();
+        ManagedList methods = null;
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Node node = nodes.item(i);
+            if (!(node instanceof Element) || !"method".equals(node.getLocalName())) {
+                continue;
+            }
+            Element methodElement = (Element) node;
+            String name = methodElement.getAttribute("name");
+            if (StringUtils.isBlank(name)) {
+                throw new IllegalStateException("<moon:method> name attribute == null");
+            }
+            RootBeanDefinition methodBd = new RootBeanDefinition();
+            methodBd.setBeanClass(MethodConfig.class);
+            methodBd.getPropertyValues().addPropertyValue("name", name);
+            String oneway = methodElement.getAttribute("oneway");
+            if (StringUtils.isNotBlank(oneway)) {
+                methodBd.getPropertyValues().addPropertyValue("oneway", oneway);
+            }
+            String dispatch = methodElement.getAttribute("dispatch");
+            if (StringUtils.isNotBlank(dispatch)) {
+                methodBd.getPropertyValues().addPropertyValue("dispatch", dispatch);
+            }
+            String dispatchThreads = methodElement.getAttribute("dispatch-threads");
+            if (StringUtils.isNotBlank(dispatchThreads)) {
+                methodBd.getPropertyValues().addPropertyValue("dispatchThreads", dispatchThreads);
+            }
+            String dispatchQueues = methodElement.getAttribute("dispatch-queues");
+            if (StringUtils.isNotBlank(dispatchQueues)) {
+                methodBd.getPropertyValues().addPropertyValue("dispatchQueues", dispatchQueues);
+            }
+            if (methods == null) {
+                methods = new ManagedList();
+            }
+            methods.add(methodBd);
+        }
+        if (methods != null) {
+            bd.getPropertyValues().addPropertyValue("methods", methods);
+        }
+    }
+
     /**
      * 批量依赖属性
      *